@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+import com.bioraft.rundeck.nexus.OptionProviderImpl.DockerImageOptionValue;
+import com.dtolabs.rundeck.plugins.option.OptionValue;
+
+/**
+ * Reduces a sequence of assets to the newest build of each branch and release.
+ *
+ * <p>Ties are always resolved in favor of the asset seen first. Aggregators over
+ * consecutive slices of the input can therefore be merged, earlier slice first,
+ * with exactly the same result as aggregating the whole input in order, which
+ * lets a large list of assets be reduced in parallel.
+ *
+ * <p>By default assets are ordered by version. An aggregator can instead order
+ * branches, and optionally releases, by the timestamp attached to each asset,
+ * which compares two longs and never parses a version.
+ *
+ * @since 2026-10-18
+ */
+class AssetAggregator {
+
+	/**
+	 * Number of assets below which a parallel reduction stops splitting.
+	 */
+	static final int CHUNK_SIZE = 4096;
+
+	static final Comparator<BranchOrVersion> BY_VERSION = BranchOrVersion::compareTo;
+
+	/**
+	 * Orders by timestamp. Equal timestamps fall back to the tag, compared as text
+	 * rather than as a version, so that distinct assets never compare equal when
+	 * sorting for display. Assets without a timestamp are the oldest and so are
+	 * ordered among themselves by tag.
+	 */
+	static final Comparator<BranchOrVersion> BY_RECENCY = Comparator.comparingLong(BranchOrVersion::getRecency)
+			.thenComparing(BranchOrVersion::getComponentVersion).thenComparing(BranchOrVersion::getArtifactId);
+
+	private final Comparator<BranchOrVersion> branchOrder;
+
+	private final Comparator<BranchOrVersion> releaseOrder;
+
+	private final Map<String, BranchOrVersion> seenBranches = new TreeMap<>();
+
+	private final Map<String, BranchOrVersion> seenReleases = new TreeMap<>();
+
+	private BranchOrVersion latest;
+
+	AssetAggregator() {
+		this(BY_VERSION, BY_VERSION);
+	}
+
+	/**
+	 * @param branchOrder Picks the newest build of a branch and orders branches.
+	 * @param releaseOrder Picks the newest build of a release and orders releases.
+	 */
+	AssetAggregator(Comparator<BranchOrVersion> branchOrder, Comparator<BranchOrVersion> releaseOrder) {
+		this.branchOrder = branchOrder;
+		this.releaseOrder = releaseOrder;
+	}
+
+	/**
+	 * Creates an aggregator ordering assets the way a search is configured to.
+	 */
+	static AssetAggregator forSearch(NexusSearch search) {
+		if (!search.isOrderedByRecency()) {
+			return new AssetAggregator();
+		}
+		return new AssetAggregator(BY_RECENCY, search.isSemverReleases() ? BY_VERSION : BY_RECENCY);
+	}
+
+	/**
+	 * Considers one asset.
+	 */
+	void add(BranchOrVersion current) {
+		String versionOrBuild = current.getVersion();
+		if (current.isVersion()) {
+			updateBranchOrVersionMap(current, versionOrBuild, seenReleases, releaseOrder);
+			// Store the most recent version to render as the first entry.
+			// Older versions will be rendered at the end of the list.
+			if (latest == null || releaseOrder.compare(current, latest) > 0) {
+				latest = current;
+			}
+		} else {
+			updateBranchOrVersionMap(current, versionOrBuild, seenBranches, branchOrder);
+		}
+	}
+
+	/**
+	 * Adds the assets another aggregator has kept, as if they had been added
+	 * after every asset this one has seen. Where the two hold equal assets, this
+	 * one's are kept, so merging in order gives the same result as adding all
+	 * assets to one aggregator. Both aggregators must order assets the same way.
+	 */
+	void merge(AssetAggregator later) {
+		for (Entry<String, BranchOrVersion> entry : later.seenBranches.entrySet()) {
+			updateBranchOrVersionMap(entry.getValue(), entry.getKey(), seenBranches, branchOrder);
+		}
+		for (Entry<String, BranchOrVersion> entry : later.seenReleases.entrySet()) {
+			updateBranchOrVersionMap(entry.getValue(), entry.getKey(), seenReleases, releaseOrder);
+		}
+		if (later.latest != null && (latest == null || releaseOrder.compare(later.latest, latest) > 0)) {
+			latest = later.latest;
+		}
+	}
+
+	/**
+	 * Renders the latest release first, then branches and releases in order.
+	 */
+	List<OptionValue> toOptionValues() {
+		List<OptionValue> optionValues = new ArrayList<>();
+		if (latest != null) {
+			optionValues.add(new DockerImageOptionValue(latest));
+		}
+
+		Iterator<Entry<String, BranchOrVersion>> seen;
+
+		seen = entriesSortedByValues(seenBranches, branchOrder).iterator();
+		while (seen.hasNext()) {
+			optionValues.add(new DockerImageOptionValue(seen.next().getValue()));
+		}
+
+		seen = entriesSortedByValues(seenReleases, releaseOrder).iterator();
+		while (seen.hasNext()) {
+			optionValues.add(new DockerImageOptionValue(seen.next().getValue()));
+		}
+
+		return optionValues;
+	}
+
+	/**
+	 * Aggregates the assets of a list that pass a filter, in list order. A list of
+	 * at least the threshold is split into chunks reduced with fork/join on the
+	 * common pool, and the chunks are merged back in order.
+	 *
+	 * @param assets Parsed assets, ordered by version.
+	 * @param filter Selects the assets to aggregate.
+	 * @param parallelThreshold Size from which the list is reduced in parallel.
+	 * @return The aggregate of the selected assets.
+	 */
+	static AssetAggregator aggregate(List<BranchOrVersion> assets, Predicate<BranchOrVersion> filter,
+			long parallelThreshold) {
+		if (assets.size() < parallelThreshold) {
+			return aggregate(assets, 0, assets.size(), filter);
+		}
+		return ForkJoinPool.commonPool().invoke(new AggregateTask(assets, 0, assets.size(), filter));
+	}
+
+	private static AssetAggregator aggregate(List<BranchOrVersion> assets, int from, int to,
+			Predicate<BranchOrVersion> filter) {
+		AssetAggregator aggregator = new AssetAggregator();
+		for (int i = from; i < to; i++) {
+			BranchOrVersion asset = assets.get(i);
+			if (filter.test(asset)) {
+				aggregator.add(asset);
+			}
+		}
+		return aggregator;
+	}
+
+	/**
+	 * Update the Branches Map.
+	 *
+	 * @param current The branch or version object we are considering.
+	 * @param versionOrBuild The version or build of the object we are considering.
+	 * @param order Decides whether the object is newer than the one tracked.
+	 */
+	private static void updateBranchOrVersionMap(BranchOrVersion current, String versionOrBuild,
+			Map<String, BranchOrVersion> map, Comparator<BranchOrVersion> order) {
+		// If we are already tracking the branch, check to ensure this is newer before saving.
+		// Otherwise, it is a new branch to us so start tracking it.
+		BranchOrVersion tracked = map.get(versionOrBuild);
+		if (tracked == null || order.compare(current, tracked) > 0) {
+			map.put(versionOrBuild, current);
+		}
+	}
+
+	/**
+	 * Sorts versions or branches by value in the given order.
+	 *
+	 * @param map The map of BranchOrVersion objects, keyed by String.
+	 * @param order The order of the values.
+	 * @return A list of assets sorted by value.
+	 */
+	static SortedSet<Map.Entry<String, BranchOrVersion>> entriesSortedByValues(Map<String, BranchOrVersion> map,
+			Comparator<BranchOrVersion> order) {
+		SortedSet<Map.Entry<String, BranchOrVersion>> sortedEntries =
+				new TreeSet<>((e1, e2) -> order.compare(e1.getValue(), e2.getValue()));
+		sortedEntries.addAll(map.entrySet());
+		return sortedEntries;
+	}
+
+	/**
+	 * Splits a range of assets in half until it is small enough to aggregate
+	 * directly, then merges the halves left to right.
+	 */
+	private static class AggregateTask extends RecursiveTask<AssetAggregator> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<BranchOrVersion> assets;
+		private final int from;
+		private final int to;
+		private final transient Predicate<BranchOrVersion> filter;
+
+		AggregateTask(List<BranchOrVersion> assets, int from, int to, Predicate<BranchOrVersion> filter) {
+			this.assets = assets;
+			this.from = from;
+			this.to = to;
+			this.filter = filter;
+		}
+
+		@Override
+		protected AssetAggregator compute() {
+			if (to - from <= CHUNK_SIZE) {
+				return aggregate(assets, from, to, filter);
+			}
+			int middle = (from + to) >>> 1;
+			AggregateTask right = new AggregateTask(assets, middle, to, filter);
+			right.fork();
+			AssetAggregator left = new AggregateTask(assets, from, middle, filter).compute();
+			left.merge(right.join());
+			return left;
+		}
+	}
+}
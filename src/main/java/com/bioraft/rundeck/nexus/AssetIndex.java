@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * All assets of one component in one repository, shared by every configuration
+ * that differs only in its version filter.
+ *
+ * <p>The index is crawled without a version filter at most once per TTL, however
+ * many configurations use it, and concurrent lookups wait for the same crawl.
+ * Assets are held parsed and stably sorted in {@link BranchOrVersion} order, so
+ * assets that compare equal keep the order Nexus returned them in and each
+ * filtered view aggregates to exactly what its own crawl would have produced.
+ *
+ * <p>A crawl that has made no progress for the stall timeout of its search is
+ * stopped, and lookups waiting for it get the assets found so far. An index
+ * from a crawl that ended early is replaced by the next lookup, and indexes
+ * that have expired are dropped whenever an index is looked up.
+ *
+ * @since 2026-10-18
+ */
+class AssetIndex {
+
+	private static final Map<String, AssetIndex> INDEXES = new ConcurrentHashMap<>();
+
+	private ShardedCrawl<ShardedCrawl.Paths> crawl;
+
+	private CompletableFuture<List<BranchOrVersion>> assets;
+
+	private long refreshedAt;
+
+	private long expiresAt;
+
+	/**
+	 * Finds the process-wide index for the component a search is for.
+	 */
+	static AssetIndex forSearch(NexusSearch search) {
+		long now = System.currentTimeMillis();
+		INDEXES.values().removeIf(index -> index.isExpired(now));
+		return INDEXES.computeIfAbsent(search.indexKey(), key -> new AssetIndex());
+	}
+
+	/**
+	 * Returns the indexed assets, starting a crawl first if the index is empty,
+	 * expired, or the last crawl found nothing.
+	 *
+	 * @param ttlMillis Milliseconds a completed crawl is reused.
+	 * @param crawls Creates a crawl of all asset paths.
+	 * @param parseCache Cache used to parse each path.
+	 * @return A future completed with the sorted assets.
+	 */
+	synchronized CompletableFuture<List<BranchOrVersion>> assets(long ttlMillis,
+			Supplier<ShardedCrawl<ShardedCrawl.Paths>> crawls, BranchOrVersionCache parseCache) {
+		if (isStale(ttlMillis)) {
+			refreshedAt = System.currentTimeMillis();
+			expiresAt = refreshedAt + ttlMillis;
+			crawl = crawls.get();
+			assets = crawl.start().thenApply(paths -> sort(paths.toList(), parseCache));
+		}
+		return assets;
+	}
+
+	/**
+	 * Whether the latest crawl reached the last page of every search.
+	 */
+	synchronized boolean isComplete() {
+		return crawl != null && crawl.isComplete();
+	}
+
+	/**
+	 * Stops the crawl in progress if it has stalled.
+	 *
+	 * @return True if a crawl was stopped.
+	 */
+	synchronized boolean stopIfStalled() {
+		if (assets == null || assets.isDone() || crawl.idleMillis() < crawl.stallTimeoutMillis()) {
+			return false;
+		}
+		crawl.stop("no progress within " + crawl.stallTimeoutMillis() + " ms");
+		return true;
+	}
+
+	private synchronized boolean isExpired(long now) {
+		return assets != null && assets.isDone() && now >= expiresAt;
+	}
+
+	private boolean isStale(long ttlMillis) {
+		if (assets == null || assets.isCompletedExceptionally()) {
+			return true;
+		}
+		if (!assets.isDone()) {
+			// Whoever started this crawl is refreshing the index; wait for it unless it stalled.
+			return stopIfStalled();
+		}
+		// An empty index usually means Nexus could not be reached.
+		return System.currentTimeMillis() - refreshedAt >= ttlMillis || !crawl.isComplete()
+				|| assets.join().isEmpty();
+	}
+
+	private static List<BranchOrVersion> sort(List<String> paths, BranchOrVersionCache parseCache) {
+		Map<String, String> artifactIds = new ConcurrentHashMap<>();
+		List<BranchOrVersion> parsed = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			parsed.add(parseCache.parse(path, artifactIds));
+		}
+		// List.sort is stable, so equal assets stay in the order Nexus returned them.
+		parsed.sort((first, second) -> first.compareTo(second));
+		return Collections.unmodifiableList(parsed);
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+/**
+ * Iterates over the asset paths matching a Nexus search, fetching continuation
+ * pages only as they are needed.
+ *
+ * <p>Only one page is held in memory at a time and the crawl does not recurse, so
+ * arbitrarily large repositories can be consumed with constant stack depth. If a
+ * page cannot be fetched or parsed within requestTimeout, or no permit is granted
+ * within queueTimeout, iteration ends after the assets already returned and
+ * {@link #isComplete()} reports that the results were cut short.
+ *
+ * <p>When the search orders by recency, the timestamp of the asset last returned
+ * is available from {@link #recency()}.
+ *
+ * @since 2026-10-18
+ */
+public class AssetIterator implements Iterator<String> {
+
+	private static final Logger LOGGER = Logger.getLogger(AssetIterator.class.getName());
+
+	private final OkHttpClient client;
+
+	private final NexusSearch search;
+
+	private NexusSearch.Page page;
+
+	private int position;
+
+	private String continuationToken;
+
+	private boolean lastPage;
+
+	private boolean complete;
+
+	public AssetIterator(OkHttpClient client, Map<String, String> config) {
+		this(client, new NexusSearch(config));
+	}
+
+	AssetIterator(OkHttpClient client, NexusSearch search) {
+		this.client = client;
+		this.search = search;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!pageHasNext() && !lastPage) {
+			page = nexusSearch();
+			position = 0;
+		}
+		return pageHasNext();
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.paths.get(position++);
+	}
+
+	/**
+	 * The timestamp of the asset last returned by {@link #next()}, in epoch
+	 * milliseconds, or BranchOrVersion.UNKNOWN_RECENCY if not known.
+	 */
+	long recency() {
+		return position == 0 ? BranchOrVersion.UNKNOWN_RECENCY : page.recency(position - 1);
+	}
+
+	/**
+	 * Whether Nexus returned the last page of the search. False while pages
+	 * remain, and after iteration ended early because a page could not be
+	 * fetched.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	private boolean pageHasNext() {
+		return page != null && position < page.paths.size();
+	}
+
+	/**
+	 * Perform one Nexus API request and remember where the next page starts.
+	 *
+	 * @return The page, or null on error.
+	 */
+	private NexusSearch.Page nexusSearch() {
+		Request request = search.request(continuationToken);
+		lastPage = true;
+		HostBulkhead.Permit permit;
+		try {
+			permit = search.bulkhead().acquire(search.queueTimeoutMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (TimeoutException e) {
+			LOGGER.log(Level.WARNING, "Search of {0} ended early: no permit within {1} ms",
+					new Object[] { search.getEndpointHost(), String.valueOf(search.queueTimeoutMillis()) });
+			return null;
+		}
+		NexusSearch.Page result;
+		Call call = client.newCall(request);
+		// Bound the whole call, as the asynchronous crawl does, so a server that stops
+		// responding mid-page cannot hold the permit and the caller indefinitely.
+		call.timeout().timeout(search.requestTimeoutMillis(), TimeUnit.MILLISECONDS);
+		try {
+			result = NexusSearch.read(call.execute(), search.getRecencyField());
+		} catch (NullPointerException | IOException e) {
+			LOGGER.log(Level.WARNING, "Search of " + search.getEndpointHost() + " ended early", e);
+			return null;
+		} finally {
+			permit.release();
+		}
+		if (result == null) {
+			LOGGER.log(Level.WARNING, "Search of {0} ended early: unreadable page", search.getEndpointHost());
+		} else if (result.continuationToken != null) {
+			continuationToken = result.continuationToken;
+			lastPage = false;
+		} else {
+			complete = true;
+		}
+		return result;
+	}
+}
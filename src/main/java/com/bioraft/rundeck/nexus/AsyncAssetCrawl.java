@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Crawls all pages of a Nexus search without blocking a thread between pages.
+ *
+ * <p>Each page is requested with {@link Call#enqueue} once the previous page has
+ * been handed to the consumer, so pages are delivered one at a time and in
+ * order. As with the blocking crawl, a page that cannot be fetched or parsed
+ * ends the crawl normally with the assets already delivered, and so does a
+ * request that waits longer than queueTimeout for a permit or longer than
+ * requestTimeout for its response. {@link #isComplete()} tells such a crawl
+ * apart from one that reached the last page. A search that cannot be sent at
+ * all, such as one with a malformed endpoint, fails the crawl.
+ *
+ * <p>Each path is delivered with its timestamp in epoch milliseconds when the
+ * search orders by recency, and with BranchOrVersion.UNKNOWN_RECENCY otherwise.
+ *
+ * @since 2026-10-18
+ */
+class AsyncAssetCrawl {
+
+	private static final Logger LOGGER = Logger.getLogger(AsyncAssetCrawl.class.getName());
+
+	private final OkHttpClient client;
+
+	private final NexusSearch search;
+
+	private final ObjLongConsumer<String> consumer;
+
+	private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+	private volatile Call current;
+
+	private volatile boolean complete;
+
+	private volatile long lastProgress = System.nanoTime();
+
+	AsyncAssetCrawl(OkHttpClient client, NexusSearch search, ObjLongConsumer<String> consumer) {
+		this.client = client;
+		this.search = search;
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Starts the crawl.
+	 *
+	 * @return A future that completes once the last page has been consumed.
+	 */
+	CompletableFuture<Void> start() {
+		lastProgress = System.nanoTime();
+		fetch(null);
+		return done;
+	}
+
+	/**
+	 * Stops requesting pages and cancels the request in flight, if any.
+	 */
+	void cancel() {
+		done.cancel(false);
+		Call call = current;
+		if (call != null) {
+			call.cancel();
+		}
+	}
+
+	/**
+	 * Ends the crawl with the assets consumed so far, as if the next page could
+	 * not be fetched, and cancels the request in flight, if any.
+	 *
+	 * @param reason Why the crawl was stopped, for the log.
+	 */
+	void stop(String reason) {
+		endEarly(reason, null);
+		Call call = current;
+		if (call != null) {
+			call.cancel();
+		}
+	}
+
+	/**
+	 * Whether the last page of the search was consumed. False while the crawl is
+	 * running and after it ended early.
+	 */
+	boolean isComplete() {
+		return complete;
+	}
+
+	boolean isRunning() {
+		return !done.isDone();
+	}
+
+	/**
+	 * Milliseconds since the crawl started or last consumed a page.
+	 */
+	long idleMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastProgress);
+	}
+
+	private void fetch(String continuationToken) {
+		// Build the request first: a search that cannot be sent fails without taking a permit.
+		Request request;
+		HostBulkhead bulkhead;
+		try {
+			request = search.request(continuationToken);
+			bulkhead = search.bulkhead();
+		} catch (RuntimeException e) {
+			done.completeExceptionally(e);
+			return;
+		}
+		bulkhead.acquireAsync(search.queueTimeoutMillis()).whenComplete((permit, error) -> {
+			if (error != null) {
+				endEarly("no permit within " + search.queueTimeoutMillis() + " ms", null);
+				return;
+			}
+			try {
+				if (done.isDone()) {
+					permit.release();
+				} else {
+					send(request, permit);
+				}
+			} catch (RuntimeException e) {
+				// Anything thrown here would be lost in the callback, leaking the permit.
+				permit.release();
+				done.completeExceptionally(e);
+			}
+		});
+	}
+
+	private void send(Request request, HostBulkhead.Permit permit) {
+		Call call = client.newCall(request);
+		current = call;
+		// A cancel() that raced with newCall() would have missed this call.
+		if (done.isDone()) {
+			call.cancel();
+		}
+		CompletableFuture<Response> answer = new CompletableFuture<>();
+		answer.orTimeout(search.requestTimeoutMillis(), TimeUnit.MILLISECONDS).whenComplete((response, error) -> {
+			try {
+				if (error instanceof TimeoutException) {
+					call.cancel();
+					permit.release();
+					endEarly("no response within " + search.requestTimeoutMillis() + " ms", null);
+				} else if (error != null) {
+					permit.release();
+					endEarly("request failed", error);
+				} else {
+					accept(read(response, permit));
+				}
+			} catch (RuntimeException e) {
+				permit.release();
+				done.completeExceptionally(e);
+			}
+		});
+		call.enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
+				answer.completeExceptionally(e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				if (!answer.complete(response)) {
+					// Too late: the crawl has already moved on.
+					permit.release();
+					response.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads a page and returns the permit for the request.
+	 *
+	 * @return The page, or null if it cannot be read.
+	 */
+	private NexusSearch.Page read(Response response, HostBulkhead.Permit permit) {
+		try {
+			return NexusSearch.read(response, search.getRecencyField());
+		} catch (IOException e) {
+			return null;
+		} finally {
+			permit.release();
+		}
+	}
+
+	private void accept(NexusSearch.Page page) {
+		if (done.isDone()) {
+			return;
+		}
+		if (page == null) {
+			endEarly("unreadable page", null);
+			return;
+		}
+		lastProgress = System.nanoTime();
+		try {
+			for (int i = 0; i < page.paths.size(); i++) {
+				consumer.accept(page.paths.get(i), page.recency(i));
+			}
+		} catch (RuntimeException e) {
+			done.completeExceptionally(e);
+			return;
+		}
+		if (page.continuationToken == null) {
+			complete = true;
+			done.complete(null);
+		} else {
+			fetch(page.continuationToken);
+		}
+	}
+
+	/**
+	 * Ends the crawl with the assets delivered so far.
+	 */
+	private void endEarly(String reason, Throwable cause) {
+		if (done.complete(null)) {
+			LOGGER.log(Level.WARNING, "Search of " + search.getEndpointHost() + " ended early: " + reason, cause);
+		}
+	}
+}
@@ -15,6 +15,8 @@
  */
 package com.bioraft.rundeck.nexus;
 
+import java.util.Map;
+
 import org.apache.maven.artifact.versioning.ComparableVersion;
 
 /**
@@ -43,6 +45,17 @@ import org.apache.maven.artifact.versioning.ComparableVersion;
  *  - Zero or more concluding characters that may be a mix of integers and non-integers
  *
  * <p>These fields in order are used to sort the assets.
+ *
+ * <p>Large repositories produce hundreds of thousands of these objects, so each
+ * one only keeps the tag plus the offset of the build separator. The version,
+ * build and comparison strings are derived from the tag on demand, and callers
+ * parsing many paths can share one artifactId instance across all of them. The
+ * parsed comparison key is kept once computed, and instances are otherwise
+ * immutable, so they can be cached and shared between lookups.
+ *
+ * <p>When assets are ordered by recency rather than by version, the time the asset
+ * was last modified or created is attached as epoch milliseconds with
+ * {@link #withRecency(long)}, which leaves cached instances untouched.
  * 
  * @author Karl DeBisschop <kdebisschop@gmail.com>
  * @since 2019-12-26
@@ -51,44 +64,101 @@ public class BranchOrVersion {
 
 	public static final String BUILD_SEPARATOR_REGEX = "[_+-]";
 
+	private static final String BUILD_SEPARATORS = "_+-";
+
+	private static final String RELEASE_CANDIDATE = "rc";
+
+	/**
+	 * Recency of an asset whose timestamp is not known, which orders before any
+	 * other. Assets that share it are ordered by tag.
+	 */
+	public static final long UNKNOWN_RECENCY = Long.MIN_VALUE;
+
+	/**
+	 * Approximate sizes for {@link #retainedBytes()}: this object, one item of a
+	 * ComparableVersion, and one of its item lists with default capacity.
+	 */
+	private static final int INSTANCE_BYTES = 40;
+	private static final int ITEM_BYTES = 16;
+	private static final int LIST_BYTES = 80;
+
 	private final String artifactId;
-	private final String versionOrBranch;
-	private String build;
-    private final String componentVersion;
-	private final String comparator;
+	private final String componentVersion;
+	private final int separator;
+	private final byte prefixLength;
+	private final boolean releaseCandidate;
+	private final boolean version;
+	private final long recency;
+	private volatile ComparableVersion comparisonKey;
 
 	public String getArtifactId() {
 		return artifactId;
 	}
 
+	/**
+	 * The full tag, as used in the Nexus version filter.
+	 */
+	public String getComponentVersion() {
+		return componentVersion;
+	}
+
+	/**
+	 * When the asset was last modified or created, in epoch milliseconds.
+	 */
+	public long getRecency() {
+		return recency;
+	}
+
 	public String getBuild() {
-		return build;
+		String build = separator < 0 ? "" : componentVersion.substring(separator + 1);
+		return releaseCandidate ? build + RELEASE_CANDIDATE : build;
 	}
 
 	public String getVersion() {
-		return versionOrBranch;
+		return separator < 0 ? componentVersion : componentVersion.substring(0, separator);
 	}
 
 	public BranchOrVersion(String path) {
-		artifactId = component(path);
+		this(path, null);
+	}
+
+	/**
+	 * Parses a path, reusing a previously seen artifactId instance where possible.
+	 *
+	 * @param path The asset path.
+	 * @param artifactIds Canonical artifactId instances shared across one batch of
+	 *                    paths, or null to keep the parsed value as is.
+	 */
+	BranchOrVersion(String path, Map<String, String> artifactIds) {
+		String component = component(path);
+		artifactId = artifactIds == null ? component : artifactIds.computeIfAbsent(component, c -> c);
 		componentVersion = tag(path);
-        String sep;
-        if (componentVersion.matches("^.+" + BUILD_SEPARATOR_REGEX + "[a-zA-Z0-9]+$")) {
-			versionOrBranch = componentVersion.replaceFirst("^(.+)" + BUILD_SEPARATOR_REGEX + "[a-zA-Z0-9]+$", "$1");
-			build = componentVersion.replaceFirst("^" + versionOrBranch + BUILD_SEPARATOR_REGEX + "([a-zA-Z0-9]+)$", "$1");
-			sep = componentVersion.replaceFirst("^" + versionOrBranch + "(" + BUILD_SEPARATOR_REGEX + ")" + build + "$", "$1");
-		} else {
-			build = "";
-			versionOrBranch = componentVersion;
-			sep = "";
-		}
-		if (componentVersion.matches("^rc(\\d+[.].*)")) {
-			build = build + "rc";
-			if (sep.isEmpty()) {
-				sep = "-";
-			}
-		}
-		comparator = componentVersion.replaceFirst("^(v|rc)(\\d+[.].*)", "$2") + sep + build;
+		separator = buildSeparator(componentVersion);
+		prefixLength = (byte) versionPrefixLength(componentVersion);
+		releaseCandidate = prefixLength == RELEASE_CANDIDATE.length();
+		version = isVersion(componentVersion, separator < 0 ? componentVersion.length() : separator);
+		recency = UNKNOWN_RECENCY;
+	}
+
+	private BranchOrVersion(BranchOrVersion parsed, long recency) {
+		artifactId = parsed.artifactId;
+		componentVersion = parsed.componentVersion;
+		separator = parsed.separator;
+		prefixLength = parsed.prefixLength;
+		releaseCandidate = parsed.releaseCandidate;
+		version = parsed.version;
+		comparisonKey = parsed.comparisonKey;
+		this.recency = recency;
+	}
+
+	/**
+	 * The same asset with a timestamp attached.
+	 *
+	 * @param recency Epoch milliseconds the asset was last modified or created.
+	 * @return This instance if it already has that recency, otherwise a copy.
+	 */
+	public BranchOrVersion withRecency(long recency) {
+		return recency == this.recency ? this : new BranchOrVersion(this, recency);
 	}
 
 	/**
@@ -96,7 +166,7 @@ public class BranchOrVersion {
 	 * Anything else is considered to be a branch.
 	 */
 	public boolean isVersion() {
-		return versionOrBranch.matches("^(v|rc)?\\d+[.]\\d+?.*+$");
+		return version;
 	}
 
 	/**
@@ -110,20 +180,109 @@ public class BranchOrVersion {
 			return 1;
 		}
 		BranchOrVersion that = (BranchOrVersion) other;
-		ComparableVersion thisVersion = new ComparableVersion(comparator);
-		ComparableVersion thatVersion = new ComparableVersion(that.comparator);
-		return Integer.signum(thisVersion.compareTo(thatVersion));
+		return Integer.signum(comparisonKey().compareTo(that.comparisonKey()));
+	}
+
+	/**
+	 * Parses the comparison string once and keeps it, since each asset is typically
+	 * compared many times and may be reused across lookups.
+	 */
+	private ComparableVersion comparisonKey() {
+		ComparableVersion key = comparisonKey;
+		if (key == null) {
+			key = new ComparableVersion(comparator());
+			comparisonKey = key;
+		}
+		return key;
 	}
 
 	public String toString() {
 		return artifactId + ":" + componentVersion;
 	}
 
+	/**
+	 * Estimates the heap retained by this asset once it has been compared: the
+	 * instance, its artifactId and tag, and the ComparableVersion comparison key.
+	 * The key keeps the comparison string, its canonical form and a tree of items,
+	 * with a sublist at each "-" and at each switch between digits and letters.
+	 * Sizes assume compressed references and compact strings.
+	 */
+	long retainedBytes() {
+		return instanceBytes() + stringBytes(artifactId.length()) + keyBytes();
+	}
+
+	/**
+	 * Estimates the heap held by this asset before it is compared, leaving out the
+	 * artifactId, which assets parsed together share.
+	 */
+	long instanceBytes() {
+		return INSTANCE_BYTES + stringBytes(componentVersion.length());
+	}
+
+	private long keyBytes() {
+		String comparator = comparator();
+		int length = comparator.length();
+		long key = 24 + 2 * stringBytes(length) + LIST_BYTES;
+		int start = 0;
+		while (start < length) {
+			char c = comparator.charAt(start);
+			if (c == '.' || c == '-') {
+				key += c == '-' ? LIST_BYTES : 0;
+				start++;
+				continue;
+			}
+			boolean digits = isDigit(c);
+			int end = start + 1;
+			while (end < length && !isSeparator(comparator.charAt(end)) && isDigit(comparator.charAt(end)) == digits) {
+				end++;
+			}
+			key += digits ? ITEM_BYTES : ITEM_BYTES + stringBytes(end - start);
+			if (end < length && !isSeparator(comparator.charAt(end))) {
+				key += LIST_BYTES;
+			}
+			start = end;
+		}
+		return key;
+	}
+
+	/**
+	 * Approximate size of a String of Latin-1 characters with its backing array.
+	 */
+	static long stringBytes(int length) {
+		return 24 + ((16 + length + 7) & ~7L);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '.' || c == '-';
+	}
+
+	/**
+	 * Builds the string handed to ComparableVersion: the tag without any "v" or "rc"
+	 * prefix, followed once more by the separator and build. Release candidates get
+	 * "rc" appended to the build so they sort before the matching release.
+	 */
+	private String comparator() {
+		String sep;
+		if (separator >= 0) {
+			sep = componentVersion.substring(separator, separator + 1);
+		} else {
+			sep = releaseCandidate ? "-" : "";
+		}
+		return componentVersion.substring(prefixLength) + sep + getBuild();
+	}
+
 	/**
 	 * Extracts the component name from a path string.
 	 */
-	private String component(String path) {
-		return path.replaceFirst("^[^/]+/", "").replaceFirst("/.*", "");
+	private static String component(String path) {
+		int first = path.indexOf('/');
+		int start = first > 0 ? first + 1 : 0;
+		int end = path.indexOf('/', start);
+		return end < 0 ? path.substring(start) : path.substring(start, end);
 	}
 
 	/**
@@ -132,8 +291,71 @@ public class BranchOrVersion {
 	 * versions may be suffixed by a build specifier, which can be numeric or
 	 * string-valued.
 	 */
-	private String tag(String path) {
-		return path.replaceAll("/?[^/]{0,199}/", "");
+	private static String tag(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Finds the last "-", "_" or "+" if it is followed only by letters and digits and
+	 * is not the first character.
+	 *
+	 * @return The offset of the separator, or -1 if there is no build designator.
+	 */
+	private static int buildSeparator(String tag) {
+		int index = tag.length() - 1;
+		while (index > 0 && isAlphanumeric(tag.charAt(index))) {
+			index--;
+		}
+		if (index < 1 || index == tag.length() - 1 || BUILD_SEPARATORS.indexOf(tag.charAt(index)) < 0) {
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * Length of a "v" or "rc" prefix that is followed by digits and a period.
+	 */
+	private static int versionPrefixLength(String tag) {
+		int length;
+		if (tag.startsWith("v")) {
+			length = 1;
+		} else if (tag.startsWith(RELEASE_CANDIDATE)) {
+			length = RELEASE_CANDIDATE.length();
+		} else {
+			return 0;
+		}
+		int index = skipDigits(tag, length, tag.length());
+		return index > length && index < tag.length() && tag.charAt(index) == '.' ? length : 0;
+	}
+
+	/**
+	 * Whether the first {@code end} characters of the tag start with an optional "v"
+	 * or "rc" followed by two integers separated by a period.
+	 */
+	private static boolean isVersion(String tag, int end) {
+		for (String prefix : new String[] { "", "v", RELEASE_CANDIDATE }) {
+			if (!tag.startsWith(prefix) || prefix.length() > end) {
+				continue;
+			}
+			int start = prefix.length();
+			int dot = skipDigits(tag, start, end);
+			if (dot > start && dot < end && tag.charAt(dot) == '.' && skipDigits(tag, dot + 1, end) > dot + 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int skipDigits(String tag, int start, int end) {
+		int index = start;
+		while (index < end && tag.charAt(index) >= '0' && tag.charAt(index) <= '9') {
+			index++;
+		}
+		return index;
+	}
+
+	private static boolean isAlphanumeric(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
 	}
 
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers parsed assets across lookups so that repeated searches of the same
+ * component do not re-parse paths that were already seen.
+ *
+ * <p>Entries are evicted least recently used first once their combined weight,
+ * an estimate of retained bytes, exceeds the configured maximum. An entry is
+ * weighed from the path it is keyed by and the parsed asset, including the
+ * comparison key it builds on first comparison. Cached BranchOrVersion
+ * instances are immutable and keep their comparison key, so they can be shared
+ * freely between callers and threads.
+ *
+ * <p>Large caches are split into up to 16 stripes by path hash, each with its
+ * own lock, recency order and share of the weight, so concurrent lookups rarely
+ * wait on each other. Small caches use a single stripe and so evict in strict
+ * LRU order.
+ *
+ * @since 2026-10-18
+ */
+public class BranchOrVersionCache {
+
+	/**
+	 * Default maximum weight, roughly 64 MB of retained heap.
+	 */
+	static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+	private static final int MAX_STRIPES = 16;
+
+	/**
+	 * Smallest share of the weight worth a stripe of its own.
+	 */
+	private static final long MIN_STRIPE_WEIGHT = 1024 * 1024;
+
+	/**
+	 * Approximate bytes of a LinkedHashMap entry and its slot in the table.
+	 */
+	private static final int ENTRY_BYTES = 48;
+
+	private static final BranchOrVersionCache SHARED = new BranchOrVersionCache(DEFAULT_MAX_WEIGHT);
+
+	private final Stripe[] stripes;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	public BranchOrVersionCache(long maxWeight) {
+		int count = (int) Math.min(MAX_STRIPES, Long.highestOneBit(Math.max(1, maxWeight / MIN_STRIPE_WEIGHT)));
+		stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe(maxWeight / count);
+		}
+	}
+
+	/**
+	 * Returns the cache shared by all OptionProviderImpl instances in the process.
+	 */
+	public static BranchOrVersionCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Returns the parsed form of a path, parsing and remembering it on a miss.
+	 *
+	 * @param path The asset path.
+	 * @param artifactIds Canonical artifactId instances for the current batch.
+	 * @return The parsed asset.
+	 */
+	public BranchOrVersion parse(String path, Map<String, String> artifactIds) {
+		Stripe stripe = stripeFor(path);
+		BranchOrVersion parsed;
+		synchronized (stripe) {
+			parsed = stripe.entries.get(path);
+		}
+		if (parsed != null) {
+			hits.increment();
+			return parsed;
+		}
+		misses.increment();
+		parsed = new BranchOrVersion(path, artifactIds);
+		long weight = weigh(path, parsed);
+		synchronized (stripe) {
+			if (stripe.entries.putIfAbsent(path, parsed) == null) {
+				stripe.weight += weight;
+				stripe.evict();
+			}
+		}
+		return parsed;
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.entries.size();
+			}
+		}
+		return size;
+	}
+
+	public long getWeight() {
+		long weight = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				weight += stripe.weight;
+			}
+		}
+		return weight;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Fraction of lookups answered from the cache, or zero before the first lookup.
+	 */
+	public double getHitRate() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.entries.clear();
+				stripe.weight = 0;
+			}
+		}
+	}
+
+	int stripeCount() {
+		return stripes.length;
+	}
+
+	private Stripe stripeFor(String path) {
+		int hash = path.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+	}
+
+	/**
+	 * The weight of an entry: the map entry, the path it is keyed by and the
+	 * parsed asset.
+	 */
+	static long weigh(String path, BranchOrVersion parsed) {
+		return ENTRY_BYTES + BranchOrVersion.stringBytes(path.length()) + parsed.retainedBytes();
+	}
+
+	/**
+	 * One share of the cache, guarded by its own monitor.
+	 */
+	private final class Stripe {
+
+		private final LinkedHashMap<String, BranchOrVersion> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+		private final long maxWeight;
+
+		private long weight;
+
+		Stripe(long maxWeight) {
+			this.maxWeight = maxWeight;
+		}
+
+		/**
+		 * Removes least recently used entries until the stripe is within its weight
+		 * limit.
+		 */
+		void evict() {
+			Iterator<Map.Entry<String, BranchOrVersion>> eldest = entries.entrySet().iterator();
+			while (weight > maxWeight && eldest.hasNext()) {
+				Map.Entry<String, BranchOrVersion> entry = eldest.next();
+				weight -= weigh(entry.getKey(), entry.getValue());
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of concurrent search requests sent to a single Nexus host.
+ *
+ * <p>Every job and project that uses the plugin against the same Nexus shares
+ * one bulkhead per endpoint host, so a burst of option lookups cannot swamp the
+ * (Elasticsearch-backed) search API. Requests beyond the limit wait in a FIFO
+ * queue and give up after a configurable queue timeout.
+ *
+ * <p>If a target latency is configured, the limit adapts in AIMD fashion: it is
+ * halved when a request takes longer than the target and grows by one after a
+ * full window of requests completes within it, never exceeding the configured
+ * maximum.
+ *
+ * <p>The first configuration seen for a host wins; later lookups for the same
+ * host share the existing bulkhead.
+ *
+ * @since 2026-10-18
+ */
+public class HostBulkhead {
+
+	static final int DEFAULT_MAX_CONCURRENT = 4;
+
+	static final long DEFAULT_QUEUE_TIMEOUT_SECONDS = 30;
+
+	private static final ConcurrentMap<String, HostBulkhead> BULKHEADS = new ConcurrentHashMap<>();
+
+	private final Object lock = new Object();
+
+	private final Deque<Waiter> queue = new ArrayDeque<>();
+
+	private final int maxConcurrent;
+
+	private final long targetLatencyNanos;
+
+	private int limit;
+
+	private int inFlight;
+
+	private int successes;
+
+	private long lastDecrease;
+
+	private final AtomicLong granted = new AtomicLong();
+
+	private final AtomicLong timeouts = new AtomicLong();
+
+	private final AtomicLong queueWaitNanos = new AtomicLong();
+
+	private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+	/**
+	 * Creates a bulkhead.
+	 *
+	 * @param maxConcurrent Maximum number of requests in flight at once.
+	 * @param targetLatencyMillis Latency above which the limit is reduced, or zero
+	 *                            to keep the limit fixed.
+	 */
+	public HostBulkhead(int maxConcurrent, long targetLatencyMillis) {
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, targetLatencyMillis));
+		this.limit = this.maxConcurrent;
+		this.lastDecrease = System.nanoTime() - targetLatencyNanos;
+	}
+
+	/**
+	 * Returns the process-wide bulkhead for a host, creating it on first use.
+	 */
+	public static HostBulkhead forHost(String host, int maxConcurrent, long targetLatencyMillis) {
+		return BULKHEADS.computeIfAbsent(host, h -> new HostBulkhead(maxConcurrent, targetLatencyMillis));
+	}
+
+	/**
+	 * Returns all process-wide bulkheads keyed by host, for monitoring.
+	 */
+	public static Map<String, HostBulkhead> all() {
+		return Collections.unmodifiableMap(BULKHEADS);
+	}
+
+	/**
+	 * Waits for a permit, giving up after the timeout.
+	 *
+	 * @param timeoutMillis Maximum time to wait in the queue.
+	 * @return A permit that must be released once the response has been read.
+	 * @throws TimeoutException If no permit became available in time.
+	 * @throws InterruptedException If the thread was interrupted while waiting.
+	 */
+	public Permit acquire(long timeoutMillis) throws InterruptedException, TimeoutException {
+		CompletableFuture<Permit> pending = acquireAsync();
+		try {
+			return pending.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// Losing the race to cancel means the permit was granted after all.
+			if (pending.cancel(false)) {
+				timeouts.incrementAndGet();
+				throw e;
+			}
+			return pending.join();
+		} catch (InterruptedException e) {
+			if (!pending.cancel(false)) {
+				pending.join().release();
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Requests a permit without blocking.
+	 *
+	 * <p>Cancelling or otherwise completing the returned future before it is granted
+	 * removes the request from the queue.
+	 *
+	 * @return A future completed with a permit once one is available.
+	 */
+	public CompletableFuture<Permit> acquireAsync() {
+		synchronized (lock) {
+			if (queue.isEmpty() && inFlight < limit) {
+				inFlight++;
+				granted.incrementAndGet();
+				return CompletableFuture.completedFuture(new Permit());
+			}
+			CompletableFuture<Permit> pending = new CompletableFuture<>();
+			queue.add(new Waiter(pending, System.nanoTime()));
+			return pending;
+		}
+	}
+
+	/**
+	 * Requests a permit without blocking, giving up after the timeout.
+	 *
+	 * @param timeoutMillis Maximum time to wait in the queue.
+	 * @return A future completed with a permit, or with a TimeoutException.
+	 */
+	public CompletableFuture<Permit> acquireAsync(long timeoutMillis) {
+		CompletableFuture<Permit> pending = acquireAsync();
+		if (!pending.isDone()) {
+			pending.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((permit, error) -> {
+				if (error instanceof TimeoutException) {
+					timeouts.incrementAndGet();
+				}
+			});
+		}
+		return pending;
+	}
+
+	public int getLimit() {
+		synchronized (lock) {
+			return limit;
+		}
+	}
+
+	public int getInFlight() {
+		synchronized (lock) {
+			return inFlight;
+		}
+	}
+
+	public int getQueueLength() {
+		synchronized (lock) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * Number of permits granted, whether immediately or after queueing.
+	 */
+	public long getGranted() {
+		return granted.get();
+	}
+
+	/**
+	 * Number of requests that gave up waiting for a permit.
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * Total time granted requests spent in the queue, in milliseconds.
+	 */
+	public long getQueueWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.get());
+	}
+
+	/**
+	 * Longest time a granted request spent in the queue, in milliseconds.
+	 */
+	public long getMaxQueueWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get());
+	}
+
+	/**
+	 * Returns a slot to the pool and hands it to the next waiters in line.
+	 *
+	 * @param heldNanos How long the permit was held, or -1 if it was never used.
+	 */
+	private void release(long heldNanos) {
+		List<Waiter> next = new ArrayList<>();
+		synchronized (lock) {
+			inFlight--;
+			if (targetLatencyNanos > 0 && heldNanos >= 0) {
+				adapt(heldNanos);
+			}
+			while (inFlight < limit && !queue.isEmpty()) {
+				Waiter waiter = queue.poll();
+				if (!waiter.pending.isDone()) {
+					inFlight++;
+					next.add(waiter);
+				}
+			}
+		}
+		// Complete outside the lock since completion may run dependent stages.
+		for (Waiter waiter : next) {
+			long waited = System.nanoTime() - waiter.enqueued;
+			if (waiter.pending.complete(new Permit())) {
+				granted.incrementAndGet();
+				queueWaitNanos.addAndGet(waited);
+				maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+			} else {
+				release(-1);
+			}
+		}
+	}
+
+	/**
+	 * Additive increase, multiplicative decrease. Decreases are spaced at least one
+	 * target latency apart so a burst of slow responses only halves the limit once.
+	 */
+	private void adapt(long latencyNanos) {
+		long now = System.nanoTime();
+		if (latencyNanos > targetLatencyNanos) {
+			if (now - lastDecrease >= targetLatencyNanos) {
+				limit = Math.max(1, limit / 2);
+				lastDecrease = now;
+				successes = 0;
+			}
+		} else if (limit < maxConcurrent && ++successes >= limit) {
+			limit++;
+			successes = 0;
+		}
+	}
+
+	/**
+	 * A request waiting in the queue.
+	 */
+	private static class Waiter {
+		final CompletableFuture<Permit> pending;
+		final long enqueued;
+
+		Waiter(CompletableFuture<Permit> pending, long enqueued) {
+			this.pending = pending;
+			this.enqueued = enqueued;
+		}
+	}
+
+	/**
+	 * Grants the holder one in-flight request. Releasing more than once is harmless.
+	 */
+	public class Permit {
+		private final long acquired = System.nanoTime();
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		public void release() {
+			if (released.compareAndSet(false, true)) {
+				HostBulkhead.this.release(System.nanoTime() - acquired);
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache backend that keeps entries in the memory of a single process.
+ *
+ * <p>An expired entry is still served while it is refreshed, and is dropped
+ * once it has been expired for as long as it was fresh. At most
+ * {@value #MAX_ENTRIES} entries are held; beyond that, the entry that expires
+ * soonest makes room for a new one.
+ *
+ * @since 2026-10-18
+ */
+public class InMemoryCacheBackend implements OptionCacheBackend {
+
+	static final int MAX_ENTRIES = 10000;
+
+	private static final InMemoryCacheBackend SHARED = new InMemoryCacheBackend();
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+	/**
+	 * The process-wide backend used when no other is configured.
+	 */
+	public static InMemoryCacheBackend shared() {
+		return SHARED;
+	}
+
+	@Override
+	public Entry get(String key) {
+		return entries.get(key);
+	}
+
+	@Override
+	public void put(String key, List<String> values, long ttlMillis) {
+		long now = System.currentTimeMillis();
+		if (!entries.containsKey(key)) {
+			purgeExpired(now);
+			while (entries.size() >= MAX_ENTRIES && evictSoonestExpiring()) {
+				// Make room.
+			}
+		}
+		entries.put(key, new Entry(new ArrayList<>(values), now, now + ttlMillis));
+	}
+
+	/**
+	 * Drops entries that have been expired for at least as long as they were
+	 * fresh, and leases that have been abandoned.
+	 */
+	void purgeExpired(long now) {
+		entries.values().removeIf(entry -> now - entry.getExpiresAt() >= entry.getExpiresAt() - entry.getStoredAt());
+		leases.values().removeIf(lease -> lease.expiresAt <= now);
+	}
+
+	/**
+	 * Number of entries held.
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	private boolean evictSoonestExpiring() {
+		Map.Entry<String, Entry> soonest = null;
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			if (soonest == null || entry.getValue().getExpiresAt() < soonest.getValue().getExpiresAt()) {
+				soonest = entry;
+			}
+		}
+		return soonest != null && entries.remove(soonest.getKey(), soonest.getValue());
+	}
+
+	@Override
+	public void invalidate(String key) {
+		entries.remove(key);
+	}
+
+	@Override
+	public String tryLease(String key, long leaseMillis) {
+		long now = System.currentTimeMillis();
+		Lease lease = new Lease(UUID.randomUUID().toString(), now + leaseMillis);
+		// Take the lease if it is free or has been abandoned.
+		Lease held = leases.compute(key, (k, current) -> current != null && current.expiresAt > now ? current : lease);
+		return held == lease ? lease.token : null;
+	}
+
+	@Override
+	public void releaseLease(String key, String token) {
+		leases.computeIfPresent(key, (k, held) -> held.token.equals(token) ? null : held);
+	}
+
+	/**
+	 * Removes all entries and leases.
+	 */
+	public void clear() {
+		entries.clear();
+		leases.clear();
+	}
+
+	private static class Lease {
+		final String token;
+		final long expiresAt;
+
+		Lease(String token, long expiresAt) {
+			this.token = token;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
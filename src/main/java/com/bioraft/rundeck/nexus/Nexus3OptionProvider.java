@@ -34,6 +34,8 @@ public class Nexus3OptionProvider implements OptionValuesPlugin {
 
 	private final OkHttpClient client;
 
+	private final OptionProviderImpl worker;
+
 	@PluginProperty(title = "Endpoint scheme", description = "Nexus server scheme", required = true, defaultValue = "https", scope = PropertyScope.Project)
 	private String endpointScheme;
 
@@ -58,35 +60,98 @@ public class Nexus3OptionProvider implements OptionValuesPlugin {
 	@PluginProperty(title = "Component version", description = "Nexus component version", scope = PropertyScope.Project)
 	private String componentVersion;
 
+	@PluginProperty(title = "Max concurrent requests", description = "Maximum concurrent searches per Nexus host", defaultValue = "4", scope = PropertyScope.Project)
+	private String maxConcurrentRequests;
+
+	@PluginProperty(title = "Queue timeout", description = "Seconds to wait for a free search slot", defaultValue = "30", scope = PropertyScope.Project)
+	private String queueTimeout;
+
+	@PluginProperty(title = "Request timeout", description = "Seconds to wait for the response to one search request", defaultValue = "60", scope = PropertyScope.Project)
+	private String requestTimeout;
+
+	@PluginProperty(title = "Target latency", description = "Milliseconds per page above which concurrency is reduced (0 disables)", defaultValue = "0", scope = PropertyScope.Project)
+	private String targetLatency;
+
+	@PluginProperty(title = "Shard by", description = "Split the search into concurrent searches by 'version' or 'name' (blank disables)", defaultValue = "", scope = PropertyScope.Project)
+	private String shardBy;
+
+	@PluginProperty(title = "Shards", description = "Comma-separated prefixes or patterns, one per shard (required for 'name')", defaultValue = "", scope = PropertyScope.Project)
+	private String shards;
+
+	@PluginProperty(title = "Cache TTL", description = "Seconds to reuse a resolved option list (0 disables)", defaultValue = "0", scope = PropertyScope.Project)
+	private String cacheTtl;
+
+	@PluginProperty(title = "Cache directory", description = "Existing directory shared by all cluster nodes for cached option lists, set in framework.properties only (blank caches in memory)", defaultValue = "", scope = PropertyScope.Framework)
+	private String cacheDirectory;
+
+	@PluginProperty(title = "Index TTL", description = "Seconds to share one crawl of a component among configurations that differ only in version filter (0 disables)", defaultValue = "0", scope = PropertyScope.Project)
+	private String indexTtl;
+
+	@PluginProperty(title = "Parallel threshold", description = "Indexed assets from which a lookup is aggregated in parallel (0 disables)", defaultValue = "50000", scope = PropertyScope.Project)
+	private String parallelThreshold;
+
+	@PluginProperty(title = "Order by", description = "Order builds by 'version', or by the 'lastModified' or 'blobCreated' time of each asset", defaultValue = "version", scope = PropertyScope.Project)
+	private String orderBy;
+
+	@PluginProperty(title = "Semver releases", description = "When ordering by time, still order releases by version", defaultValue = "false", scope = PropertyScope.Project)
+	private String semverReleases;
+
 	public Nexus3OptionProvider() {
-		this.client = new OkHttpClient();
+		this(new OkHttpClient());
 	}
 
 	public Nexus3OptionProvider(OkHttpClient client) {
 		this.client = client;
+		this.worker = new OptionProviderImpl(client);
 	}
 
-	Map<String, String> config;
-
+	/**
+	 * Resolves the configuration for this call only, so concurrent calls with
+	 * different job options never see each other's settings.
+	 */
 	@Override
 	public List<OptionValue> getOptionValues(Map configuration) {
-		config = new HashMap<>();
-
-		setVariable(configuration,"endpointScheme", endpointScheme);
-		setVariable(configuration,"endpointHost", endpointHost);
-		setVariable(configuration,"endpointPath", endpointPath);
-		setVariable(configuration,"user", user);
-		setVariable(configuration,"password", password);
-		setVariable(configuration,"repository", repository);
-		setVariable(configuration,"componentName", componentName);
-		setVariable(configuration,"componentVersion",componentVersion);
-
-		OptionProviderImpl worker = new OptionProviderImpl(client);
-		return worker.getOptionValues(config);
+		Map<String, String> config = new HashMap<>();
+
+		setVariable(config, configuration, "endpointScheme", endpointScheme);
+		setVariable(config, configuration, "endpointHost", endpointHost);
+		setVariable(config, configuration, "endpointPath", endpointPath);
+		setVariable(config, configuration, "user", user);
+		setVariable(config, configuration, "password", password);
+		setVariable(config, configuration, "repository", repository);
+		setVariable(config, configuration, "componentName", componentName);
+		setVariable(config, configuration, "componentVersion",componentVersion);
+		setVariable(config, configuration, "maxConcurrentRequests", maxConcurrentRequests);
+		setVariable(config, configuration, "queueTimeout", queueTimeout);
+		setVariable(config, configuration, "requestTimeout", requestTimeout);
+		setVariable(config, configuration, "targetLatency", targetLatency);
+		setVariable(config, configuration, "shardBy", shardBy);
+		setVariable(config, configuration, "shards", shards);
+		setVariable(config, configuration, "cacheTtl", cacheTtl);
+		setVariable(config, configuration, "indexTtl", indexTtl);
+		setVariable(config, configuration, "parallelThreshold", parallelThreshold);
+		setVariable(config, configuration, "orderBy", orderBy);
+		setVariable(config, configuration, "semverReleases", semverReleases);
+
+		return worker().getOptionValues(config);
+	}
+
+	/**
+	 * Chooses the worker for a call. The cache directory is a framework setting
+	 * and is never taken from the project or job configuration, since it lets the
+	 * server write files.
+	 */
+	private OptionProviderImpl worker() {
+		if (cacheDirectory == null || cacheDirectory.isEmpty()) {
+			return worker;
+		}
+		return new OptionProviderImpl(client, BranchOrVersionCache.shared(),
+				new SharedDirectoryCacheBackend(cacheDirectory));
 	}
 
 	@SuppressWarnings("rawtypes")
-	private void setVariable(Map configuration, String variableName, String variable) {
+	private static void setVariable(Map<String, String> config, Map configuration, String variableName,
+			String variable) {
 		if (configuration.containsKey(variableName)) {
 			config.put(variableName, configuration.get(variableName).toString());
 		} else  if (variable != null && !variable.isEmpty()) {
@@ -0,0 +1,584 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Request.Builder;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Builds the search requests for one plugin configuration and parses the pages
+ * Nexus returns, for both the blocking and the asynchronous crawl.
+ *
+ * <p>All settings are resolved from the configuration map once, up front, and
+ * never change afterwards. An instance describes exactly one lookup and can be
+ * shared between threads, which lets a single provider serve concurrent
+ * requests with different configurations.
+ *
+ * @since 2026-10-18
+ */
+final class NexusSearch {
+
+	static final String CONTINUATION_TOKEN = "continuationToken";
+
+	static final String SHARD_BY_VERSION = "version";
+
+	static final String SHARD_BY_NAME = "name";
+
+	/**
+	 * Seconds to wait for the response to one search request.
+	 */
+	static final long DEFAULT_REQUEST_TIMEOUT_SECONDS = 60;
+
+	/**
+	 * Indexed assets from which a lookup is aggregated in parallel.
+	 */
+	static final long DEFAULT_PARALLEL_THRESHOLD = 50000;
+
+	/**
+	 * Asset fields that can be used to order by recency instead of by version.
+	 */
+	static final String LAST_MODIFIED = "lastModified";
+
+	static final String BLOB_CREATED = "blobCreated";
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/**
+	 * Nexus timestamps, with the offset written either as +00:00 or as +0000.
+	 */
+	private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+			.append(DateTimeFormatter.ISO_LOCAL_DATE_TIME).optionalStart().appendOffset("+HH:MM", "Z").optionalEnd()
+			.optionalStart().appendOffset("+HHMM", "Z").optionalEnd().toFormatter();
+
+	private final String endpointScheme;
+	private final String endpointHost;
+	private final String endpointPath;
+	private final String authorization;
+	private final String credentials;
+	private final String repository;
+	private final String componentName;
+	private final String componentVersion;
+	private final int maxConcurrentRequests;
+	private final long targetLatencyMillis;
+	private final long queueTimeoutMillis;
+	private final long requestTimeoutMillis;
+	private final long crawlTimeoutSeconds;
+	private final long parallelThreshold;
+	private final long cacheTtlMillis;
+	private final long indexTtlMillis;
+	private final String recencyField;
+	private final boolean semverReleases;
+	private final String shardBy;
+	private final String shardList;
+	private final List<NexusSearch> shards;
+
+	NexusSearch(Map<String, String> config) {
+		endpointScheme = config.get("endpointScheme");
+		endpointHost = config.get("endpointHost");
+		endpointPath = config.get("endpointPath");
+		if (config.containsKey("user") && config.containsKey("password")) {
+			authorization = Credentials.basic(config.get("user"), config.get("password"));
+		} else {
+			authorization = null;
+		}
+		credentials = authorization == null ? "" : sha256(authorization);
+		repository = config.get("repository");
+		componentName = config.get("componentName");
+		componentVersion = config.get("componentVersion");
+		maxConcurrentRequests = (int) longConfig(config, "maxConcurrentRequests", HostBulkhead.DEFAULT_MAX_CONCURRENT);
+		targetLatencyMillis = longConfig(config, "targetLatency", 0L);
+		queueTimeoutMillis = TimeUnit.SECONDS.toMillis(
+				longConfig(config, "queueTimeout", HostBulkhead.DEFAULT_QUEUE_TIMEOUT_SECONDS));
+		long requestTimeout = longConfig(config, "requestTimeout", DEFAULT_REQUEST_TIMEOUT_SECONDS);
+		requestTimeoutMillis = TimeUnit.SECONDS
+				.toMillis(requestTimeout > 0 ? requestTimeout : DEFAULT_REQUEST_TIMEOUT_SECONDS);
+		crawlTimeoutSeconds = longConfig(config, "crawlTimeout", 0L);
+		long threshold = longConfig(config, "parallelThreshold", DEFAULT_PARALLEL_THRESHOLD);
+		parallelThreshold = threshold > 0 ? threshold : Long.MAX_VALUE;
+		cacheTtlMillis = TimeUnit.SECONDS.toMillis(longConfig(config, "cacheTtl", 0L));
+		String orderBy = config.get("orderBy");
+		recencyField = LAST_MODIFIED.equals(orderBy) || BLOB_CREATED.equals(orderBy) ? orderBy : null;
+		semverReleases = Boolean.parseBoolean(config.get("semverReleases"));
+		// The index and shards do not carry timestamps, so they only apply when ordering by version.
+		indexTtlMillis = recencyField != null ? 0 : TimeUnit.SECONDS.toMillis(longConfig(config, "indexTtl", 0L));
+		shardBy = recencyField != null ? null : config.get("shardBy");
+		shardList = config.get("shards");
+		shards = shards();
+	}
+
+	/**
+	 * Copies a search, replacing the name and version filters.
+	 *
+	 * @param sharded Whether the copy may be split into shards itself.
+	 */
+	private NexusSearch(NexusSearch search, String componentName, String componentVersion, boolean sharded) {
+		endpointScheme = search.endpointScheme;
+		endpointHost = search.endpointHost;
+		endpointPath = search.endpointPath;
+		authorization = search.authorization;
+		credentials = search.credentials;
+		repository = search.repository;
+		this.componentName = componentName;
+		this.componentVersion = componentVersion;
+		maxConcurrentRequests = search.maxConcurrentRequests;
+		targetLatencyMillis = search.targetLatencyMillis;
+		queueTimeoutMillis = search.queueTimeoutMillis;
+		requestTimeoutMillis = search.requestTimeoutMillis;
+		crawlTimeoutSeconds = search.crawlTimeoutSeconds;
+		parallelThreshold = search.parallelThreshold;
+		cacheTtlMillis = search.cacheTtlMillis;
+		indexTtlMillis = search.indexTtlMillis;
+		recencyField = search.recencyField;
+		semverReleases = search.semverReleases;
+		shardBy = search.shardBy;
+		shardList = search.shardList;
+		shards = sharded ? shards() : Collections.<NexusSearch>emptyList();
+	}
+
+	/**
+	 * Splits this search into independent searches that can be paged concurrently.
+	 *
+	 * <p>Sharding by version only applies when no specific version is configured.
+	 * Sharding by name only applies when searching all components. Either way the
+	 * shards must be listed explicitly, so a search is never fanned out further
+	 * than configured. Listed shards are prefixes unless they contain a wildcard.
+	 */
+	private List<NexusSearch> shards() {
+		List<String> patterns = new ArrayList<>();
+		if (shardList != null) {
+			for (String shard : shardList.split(",")) {
+				shard = shard.trim();
+				if (!shard.isEmpty()) {
+					patterns.add(shard.contains("*") || shard.contains("?") ? shard : shard + "*");
+				}
+			}
+		}
+		List<NexusSearch> searches = new ArrayList<>();
+		if (SHARD_BY_VERSION.equals(shardBy) && isWildcard(componentVersion)) {
+			for (String pattern : patterns) {
+				searches.add(new NexusSearch(this, componentName, pattern, false));
+			}
+		} else if (SHARD_BY_NAME.equals(shardBy) && isWildcard(componentName)) {
+			for (String pattern : patterns) {
+				searches.add(new NexusSearch(this, pattern, componentVersion, false));
+			}
+		}
+		return Collections.unmodifiableList(searches);
+	}
+
+	/**
+	 * Hex SHA-256 digest of a string, for naming secrets or long keys without
+	 * revealing them.
+	 */
+	static String sha256(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean isWildcard(String filter) {
+		return filter == null || filter.isEmpty() || filter.equals("*");
+	}
+
+	/**
+	 * Milliseconds resolved option lists are cached, or zero if caching is off.
+	 */
+	long getCacheTtlMillis() {
+		return cacheTtlMillis;
+	}
+
+	/**
+	 * Identifies the results of this search for caching. Different credentials get
+	 * different keys, since a user may be allowed to see different assets and a
+	 * wrong password sees none, as do searches ordered differently. So do searches
+	 * with different shard settings, because a shard list that misses some versions
+	 * finds fewer assets. Credentials appear only as a hash.
+	 */
+	String cacheKey() {
+		String key = endpoint() + "?repository=" + repository + "&name=" + componentName + "&version="
+				+ componentVersion + "&credentials=" + credentials + shardKey();
+		return recencyField == null ? key : key + "&orderBy=" + recencyField + "&semverReleases=" + semverReleases;
+	}
+
+	/**
+	 * Milliseconds a shared asset index is reused, or zero if searches are not indexed.
+	 */
+	long getIndexTtlMillis() {
+		return indexTtlMillis;
+	}
+
+	/**
+	 * The asset field holding the time used to order assets, or null to order by version.
+	 */
+	String getRecencyField() {
+		return recencyField;
+	}
+
+	boolean isOrderedByRecency() {
+		return recencyField != null;
+	}
+
+	/**
+	 * Whether releases are still ordered by version when ordering by recency.
+	 */
+	boolean isSemverReleases() {
+		return semverReleases;
+	}
+
+	/**
+	 * Identifies the assets of a component, whatever version filter is applied.
+	 * Different credentials and shard settings get different indexes, as they do
+	 * for cached lists.
+	 */
+	String indexKey() {
+		return endpoint() + "?repository=" + repository + "&name=" + componentName + "&credentials=" + credentials
+				+ shardKey();
+	}
+
+	/**
+	 * The shard settings as key parameters, or nothing if the search is not sharded.
+	 * The configured list is used rather than the shards of this search, which has
+	 * none when a version filter is set but is indexed by a search that does.
+	 */
+	private String shardKey() {
+		if (shardBy == null || shardList == null) {
+			return "";
+		}
+		List<String> listed = new ArrayList<>();
+		for (String shard : shardList.split(",")) {
+			if (!shard.trim().isEmpty()) {
+				listed.add(shard.trim());
+			}
+		}
+		return listed.isEmpty() ? "" : "&shardBy=" + shardBy + "&shards=" + String.join(",", listed);
+	}
+
+	/**
+	 * The same search without the version filter, for building a shared index.
+	 */
+	NexusSearch withoutVersionFilter() {
+		return new NexusSearch(this, componentName, null, true);
+	}
+
+	/**
+	 * Whether an asset found without the version filter also passes it.
+	 */
+	boolean matchesVersion(BranchOrVersion asset) {
+		return filterMatches(componentVersion, asset.getComponentVersion());
+	}
+
+	/**
+	 * The repository searched.
+	 */
+	String getRepository() {
+		return repository;
+	}
+
+	/**
+	 * The component name filter, which may contain wildcards.
+	 */
+	String getComponentName() {
+		return componentName;
+	}
+
+	/**
+	 * The version filter, which may contain wildcards.
+	 */
+	String getComponentVersion() {
+		return componentVersion;
+	}
+
+	/**
+	 * Whether a value would be found by a name or version filter of a search,
+	 * where an empty filter finds everything.
+	 */
+	static boolean filterMatches(String filter, String value) {
+		return isWildcard(filter) || globMatches(filter, value);
+	}
+
+	/**
+	 * Matches a value against a Nexus search pattern, where '*' matches any run of
+	 * characters and '?' matches any one character. Like Nexus search, letters
+	 * match without regard to case, so a filter applied locally to an index or a
+	 * webhook finds exactly what the same filter finds when sent to Nexus.
+	 */
+	static boolean globMatches(String glob, String value) {
+		int g = 0;
+		int v = 0;
+		int star = -1;
+		int resume = 0;
+		while (v < value.length()) {
+			if (g < glob.length() && (glob.charAt(g) == '?' || sameIgnoringCase(glob.charAt(g), value.charAt(v)))) {
+				g++;
+				v++;
+			} else if (g < glob.length() && glob.charAt(g) == '*') {
+				star = g++;
+				resume = v;
+			} else if (star >= 0) {
+				// Let the last '*' absorb one more character and try again.
+				g = star + 1;
+				v = ++resume;
+			} else {
+				return false;
+			}
+		}
+		while (g < glob.length() && glob.charAt(g) == '*') {
+			g++;
+		}
+		return g == glob.length();
+	}
+
+	/**
+	 * Compares two characters the way String.equalsIgnoreCase does.
+	 */
+	private static boolean sameIgnoringCase(char first, char second) {
+		return first == second || Character.toUpperCase(first) == Character.toUpperCase(second)
+				|| Character.toLowerCase(first) == Character.toLowerCase(second);
+	}
+
+	/**
+	 * Whether this search is split into shards.
+	 */
+	boolean isSharded() {
+		return !shards.isEmpty();
+	}
+
+	/**
+	 * The shards of this search, in the order their results are merged.
+	 */
+	List<NexusSearch> getShards() {
+		return shards;
+	}
+
+	/**
+	 * The Nexus host, or null if it has not been configured.
+	 */
+	String getEndpointHost() {
+		return endpointHost;
+	}
+
+	/**
+	 * The search endpoint, as endpointScheme://endpointHost followed by endpointPath.
+	 */
+	String endpoint() {
+		return endpointScheme + "://" + endpointHost + endpointPath;
+	}
+
+	/**
+	 * Seconds an asynchronous crawl may take, or zero for no limit.
+	 */
+	long getCrawlTimeoutSeconds() {
+		return crawlTimeoutSeconds;
+	}
+
+	/**
+	 * Number of indexed assets from which a lookup is aggregated with fork/join.
+	 */
+	long getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Builds the request for one page.
+	 *
+	 * @param continuationToken Continuation token from previous page, null on first
+	 *                          request.
+	 */
+	Request request(String continuationToken) {
+		String endpoint = endpointScheme + "://" + endpointHost + endpointPath;
+		Builder requestBuilder = new Request.Builder().url(buildUrl(endpoint, continuationToken).build());
+		if (authorization != null) {
+			requestBuilder.addHeader("Authorization", authorization);
+		}
+		return requestBuilder.build();
+	}
+
+	private HttpUrl.Builder buildUrl(String endpoint, String continuationToken) {
+		HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(endpoint)).newBuilder();
+		urlBuilder.addQueryParameter("repository", repository);
+		urlBuilder.addQueryParameter("name", componentName);
+		// For docker, version is the docker tag.
+		urlBuilder.addQueryParameter("sort", "version");
+		if (componentVersion != null) {
+			urlBuilder.addQueryParameter("version", componentVersion);
+		}
+		if (continuationToken != null) {
+			urlBuilder.addQueryParameter(CONTINUATION_TOKEN, continuationToken);
+		}
+		return urlBuilder;
+	}
+
+	/**
+	 * Finds the process-wide bulkhead that limits concurrent searches against a host.
+	 */
+	HostBulkhead bulkhead() {
+		return HostBulkhead.forHost(endpointHost, maxConcurrentRequests, targetLatencyMillis);
+	}
+
+	long queueTimeoutMillis() {
+		return queueTimeoutMillis;
+	}
+
+	/**
+	 * Milliseconds to wait for the response to one request once it has been sent.
+	 */
+	long requestTimeoutMillis() {
+		return requestTimeoutMillis;
+	}
+
+	/**
+	 * Longest a healthy crawl can go without receiving a page: the time a request
+	 * may wait for a permit plus the time it may wait for its response.
+	 */
+	long stallTimeoutMillis() {
+		return queueTimeoutMillis + requestTimeoutMillis;
+	}
+
+	/**
+	 * Reads a numeric setting, falling back to the default if it is missing or malformed.
+	 */
+	private static long longConfig(Map<String, String> config, String key, long defaultValue) {
+		try {
+			return Long.parseLong(config.get(key));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Reads and parses a response.
+	 *
+	 * @param recencyField Asset field to read timestamps from, or null for none.
+	 * @return The page, or null if the response had no usable body.
+	 * @throws IOException If the body could not be read.
+	 */
+	static Page read(Response response, String recencyField) throws IOException {
+		ResponseBody body = response.body();
+		if (body == null) {
+			return null;
+		}
+		String json = body.string();
+		if (json.isEmpty()) {
+			return null;
+		}
+		return parse(json, recencyField);
+	}
+
+	/**
+	 * Parses a page of search results.
+	 *
+	 * <p>Since all we need to prepare the option list is path, extract that from the
+	 * JsonNode and keep just a list of strings in the interest of conserving system
+	 * resources. When ordering by recency, the timestamp of each asset is kept as
+	 * epoch milliseconds alongside.
+	 *
+	 * @param recencyField Asset field to read timestamps from, or null for none.
+	 * @return The page, or null if the JSON is malformed.
+	 */
+	static Page parse(String json, String recencyField) {
+		JsonNode tree;
+		try {
+			tree = OBJECT_MAPPER.readTree(json);
+		} catch (JsonProcessingException e) {
+			return null;
+		}
+		JsonNode items = tree.path("items");
+		List<String> paths = new ArrayList<>(items.size());
+		long[] recency = recencyField == null ? null : new long[items.size()];
+		Iterator<JsonNode> elements = items.elements();
+		while (elements.hasNext()) {
+			JsonNode item = elements.next();
+			if (recency != null) {
+				recency[paths.size()] = epochMillis(item.path(recencyField).asText(null));
+			}
+			paths.add(item.path("path").asText());
+		}
+		// Nexus sends an explicit null token on the last page.
+		JsonNode token = tree.path(CONTINUATION_TOKEN);
+		String continuationToken = token.isTextual() && !token.asText().isEmpty() ? token.asText() : null;
+		return new Page(paths, recency, continuationToken);
+	}
+
+	/**
+	 * Converts a Nexus timestamp to epoch milliseconds.
+	 *
+	 * @return The time, or BranchOrVersion.UNKNOWN_RECENCY if missing or malformed.
+	 */
+	static long epochMillis(String timestamp) {
+		if (timestamp == null || timestamp.isEmpty()) {
+			return BranchOrVersion.UNKNOWN_RECENCY;
+		}
+		try {
+			return OffsetDateTime.parse(timestamp, TIMESTAMP_FORMAT).toInstant().toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return BranchOrVersion.UNKNOWN_RECENCY;
+		}
+	}
+
+	/**
+	 * One page of search results.
+	 */
+	static class Page {
+		final List<String> paths;
+		final long[] recency;
+		final String continuationToken;
+
+		Page(List<String> paths, long[] recency, String continuationToken) {
+			this.paths = paths;
+			this.recency = recency;
+			this.continuationToken = continuationToken;
+		}
+
+		/**
+		 * The timestamp of the asset at a position, if timestamps were read.
+		 */
+		long recency(int index) {
+			return recency == null ? BranchOrVersion.UNKNOWN_RECENCY : recency[index];
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Storage for resolved option lists, keyed by search. Shared asset indexes are
+ * not stored here; each process keeps its own in memory.
+ *
+ * <p>Implementations may be shared by several Rundeck nodes. A lease lets one
+ * node refresh a key while the others keep serving the entry they already
+ * have, and only the holder of a lease can release it. Implementations must be
+ * safe for concurrent use and should treat storage errors as cache misses
+ * rather than throwing.
+ *
+ * @since 2026-10-18
+ */
+public interface OptionCacheBackend {
+
+	/**
+	 * Finds the stored entry for a key, whether or not it has expired.
+	 *
+	 * @param key The cache key.
+	 * @return The entry, or null if there is none.
+	 */
+	Entry get(String key);
+
+	/**
+	 * Stores values for a key, replacing any earlier entry.
+	 *
+	 * @param key The cache key.
+	 * @param values The values to store.
+	 * @param ttlMillis Milliseconds until the entry expires.
+	 */
+	void put(String key, List<String> values, long ttlMillis);
+
+	/**
+	 * Removes the entry for a key.
+	 *
+	 * @param key The cache key.
+	 */
+	void invalidate(String key);
+
+	/**
+	 * Claims the right to refresh a key.
+	 *
+	 * @param key The cache key.
+	 * @param leaseMillis Milliseconds after which an unreleased lease is abandoned.
+	 * @return A token identifying the lease, or null if someone else holds it.
+	 */
+	String tryLease(String key, long leaseMillis);
+
+	/**
+	 * Gives up a lease granted by {@link #tryLease}. A lease that was abandoned
+	 * and has since been granted to someone else is left in place.
+	 *
+	 * @param key The cache key.
+	 * @param token The token returned when the lease was granted.
+	 */
+	void releaseLease(String key, String token);
+
+	/**
+	 * Values stored for a key, with the times they were stored and expire.
+	 */
+	final class Entry {
+		private final List<String> values;
+		private final long storedAt;
+		private final long expiresAt;
+
+		public Entry(List<String> values, long storedAt, long expiresAt) {
+			this.values = Collections.unmodifiableList(values);
+			this.storedAt = storedAt;
+			this.expiresAt = expiresAt;
+		}
+
+		public List<String> getValues() {
+			return values;
+		}
+
+		public long getStoredAt() {
+			return storedAt;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() >= expiresAt;
+		}
+	}
+}
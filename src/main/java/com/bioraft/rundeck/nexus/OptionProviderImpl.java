@@ -15,17 +15,21 @@
  */
 package com.bioraft.rundeck.nexus;
 
-import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.dtolabs.rundeck.plugins.option.OptionValue;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
-import okhttp3.*;
-import okhttp3.Request.Builder;
+import okhttp3.OkHttpClient;
 
 /**
  * Expands three-part semantic versions to handle cases where there are more
@@ -33,191 +37,394 @@ import okhttp3.Request.Builder;
  *
  * <p>It would really just be better if people only used semantic versions.
  *
+ * <p>Instances hold no per-call state: each lookup resolves its configuration
+ * into its own immutable {@link NexusSearch}, so one instance may serve
+ * concurrent lookups with different configurations.
+ *
  * @author Karl DeBisschop <kdebisschop@gmail.com>
  * @since 2019-12-26
  */
 public class OptionProviderImpl {
 
-	static final String CONTINUATION_TOKEN = "continuationToken";
+	/**
+	 * Time after which a cache lease held by a node that never released it is abandoned.
+	 */
+	static final long CACHE_LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
 
 	private final OkHttpClient client;
 
-	private Map<String, String> config;
+	private final BranchOrVersionCache parseCache;
+
+	private final OptionCacheBackend cacheBackend;
 
 	public OptionProviderImpl() {
-		this.client = new OkHttpClient();
+		this(new OkHttpClient());
 	}
 
 	public OptionProviderImpl(OkHttpClient client) {
+		this(client, BranchOrVersionCache.shared());
+	}
+
+	public OptionProviderImpl(OkHttpClient client, BranchOrVersionCache parseCache) {
+		this(client, parseCache, null);
+	}
+
+	/**
+	 * @param cacheBackend Where option lists are cached when cacheTtl is set, or
+	 *                     null to cache them in memory, in this process.
+	 */
+	public OptionProviderImpl(OkHttpClient client, BranchOrVersionCache parseCache, OptionCacheBackend cacheBackend) {
 		this.client = client;
+		this.parseCache = parseCache;
+		this.cacheBackend = cacheBackend;
+	}
+
+	/**
+	 * Creates a provider that records every search page to a directory, for
+	 * replay in tests. Recording can only be turned on here, by whoever builds the
+	 * provider, and not from project configuration.
+	 *
+	 * @param recordDirectory An existing directory to record to.
+	 * @throws IllegalArgumentException If recordDirectory is not an existing directory.
+	 */
+	public OptionProviderImpl(OkHttpClient client, BranchOrVersionCache parseCache, OptionCacheBackend cacheBackend,
+			Path recordDirectory) {
+		this(recording(client, recordDirectory), parseCache, cacheBackend);
+	}
+
+	/**
+	 * A copy of a client that records every search page to a directory.
+	 */
+	private static OkHttpClient recording(OkHttpClient client, Path directory) {
+		if (directory == null || !Files.isDirectory(directory)) {
+			throw new IllegalArgumentException("Not a directory: " + directory);
+		}
+		OkHttpClient.Builder builder = client.newBuilder();
+		// Go first, so pages are recorded as the crawl receives them.
+		builder.interceptors().add(0, NexusRecorder.forDirectory(directory));
+		return builder.build();
 	}
 
 	public List<OptionValue> getOptionValues(Map<String, String> config) {
-		this.config = config;
+		NexusSearch search = new NexusSearch(config);
+		if (search.getEndpointHost() == null) {
+			return missingHost();
+		}
+		if (search.getCacheTtlMillis() <= 0) {
+			return crawl(search).optionValues;
+		}
 
-		List<OptionValue> optionValues = new ArrayList<>();
-		if (!config.containsKey("endpointHost")) {
-			String message = "Configure project.plugin.OptionValues.Nexus3OptionProvider.endpointHost";
-			optionValues.add(new ErrorOptionValue(message));
-			return optionValues;
-		}
-
-		List<String> imageList = nexusSearch();
-
-		Map<String, BranchOrVersion> seenBranches = new TreeMap<>();
-		Map<String, BranchOrVersion> seenReleases = new TreeMap<>();
-
-		BranchOrVersion latest = null;
-
-		for (String path : imageList) {
-			BranchOrVersion current = new BranchOrVersion(path);
-			String versionOrBuild = current.getVersion();
-			if (current.isVersion()) {
-				updateBranchOrVersionMap(current, versionOrBuild, seenReleases);
-				// Store the most recent version to render as the first entry.
-				// Older versions will be rendered at the end of the list.
-				if (current.compareTo(latest) > 0) {
-					latest = current;
-				}
-			} else {
-				updateBranchOrVersionMap(current, versionOrBuild, seenBranches);
-			}
+		OptionCacheBackend cache = cacheFor(search);
+		String key = search.cacheKey();
+		OptionCacheBackend.Entry cached = cache.get(key);
+		if (cached != null && !cached.isExpired()) {
+			return fromCache(cached);
+		}
+		String lease = cache.tryLease(key, CACHE_LEASE_MILLIS);
+		if (lease == null) {
+			// Another node is refreshing this list. Serve what we have meanwhile.
+			return cached != null ? fromCache(cached) : crawl(search).optionValues;
 		}
+		try {
+			Crawled crawled = crawl(search);
+			store(cache, key, crawled, search);
+			return crawled.optionValues;
+		} finally {
+			cache.releaseLease(key, lease);
+		}
+	}
 
-		if (latest != null) {
-			optionValues.add(new DockerImageOptionValue(latest));
+	private Crawled crawl(NexusSearch search) {
+		if (search.getIndexTtlMillis() > 0) {
+			return joinIndexed(search);
 		}
+		if (search.isOrderedByRecency()) {
+			AssetIterator assets = new AssetIterator(client, search);
+			List<OptionValue> optionValues = byRecency(assets, search);
+			return new Crawled(optionValues, assets.isComplete());
+		}
+		if (search.isSharded()) {
+			ShardedCrawl<ShardAssets> crawl = new ShardedCrawl<>(client, search.getShards(),
+					() -> new ShardAssets(search));
+			List<OptionValue> optionValues = crawl.join().aggregator.toOptionValues();
+			return new Crawled(optionValues, crawl.isComplete());
+		}
+		AssetIterator assets = new AssetIterator(client, search);
+		List<OptionValue> optionValues = aggregate(assets);
+		return new Crawled(optionValues, assets.isComplete());
+	}
 
-		Iterator<Entry<String, BranchOrVersion>> seen;
+	/**
+	 * Aggregates assets as they arrive, so only the newest build of each branch
+	 * and release is held.
+	 */
+	private List<OptionValue> aggregate(Iterator<String> assets) {
+		// Nearly every path shares the same artifactId, so keep a single copy of it.
+		Map<String, String> artifactIds = new HashMap<>();
 
-		seen = entriesSortedByValues(seenBranches).iterator();
-		while (seen.hasNext()) {
-			optionValues.add(new DockerImageOptionValue(seen.next().getValue()));
+		AssetAggregator aggregator = new AssetAggregator();
+		while (assets.hasNext()) {
+			aggregator.add(parseCache.parse(assets.next(), artifactIds));
 		}
 
-		seen = entriesSortedByValues(seenReleases).iterator();
-		while (seen.hasNext()) {
-			optionValues.add(new DockerImageOptionValue(seen.next().getValue()));
+		return aggregator.toOptionValues();
+	}
+
+	/**
+	 * Aggregates assets by their timestamps.
+	 */
+	private List<OptionValue> byRecency(AssetIterator assets, NexusSearch search) {
+		Map<String, String> artifactIds = new HashMap<>();
+		AssetAggregator aggregator = AssetAggregator.forSearch(search);
+		while (assets.hasNext()) {
+			aggregator.add(parseCache.parse(assets.next(), artifactIds).withRecency(assets.recency()));
 		}
+		return aggregator.toOptionValues();
+	}
 
+	/**
+	 * Computes the option values without holding a thread while pages are fetched.
+	 *
+	 * <p>Pages are requested with OkHttp's asynchronous API, each one as soon as the
+	 * previous page has been aggregated. Cancelling the returned future cancels the
+	 * request in flight and stops the crawl. If crawlTimeout is configured, the
+	 * future fails with a TimeoutException once that many seconds have passed. A
+	 * sharded search crawls all of its shards at once. A cached list is returned
+	 * as an already completed future.
+	 *
+	 * @param config The resolved plugin configuration.
+	 * @return A future completed with the option values.
+	 */
+	public CompletableFuture<List<OptionValue>> getOptionValuesAsync(Map<String, String> config) {
+		NexusSearch search = new NexusSearch(config);
+		if (search.getEndpointHost() == null) {
+			return CompletableFuture.completedFuture(missingHost());
+		}
+		if (search.getCacheTtlMillis() <= 0) {
+			return crawlAsync(search, crawled -> {
+			});
+		}
+
+		OptionCacheBackend cache = cacheFor(search);
+		String key = search.cacheKey();
+		OptionCacheBackend.Entry cached = cache.get(key);
+		if (cached != null && !cached.isExpired()) {
+			return CompletableFuture.completedFuture(fromCache(cached));
+		}
+		String lease = cache.tryLease(key, CACHE_LEASE_MILLIS);
+		if (lease == null && cached != null) {
+			return CompletableFuture.completedFuture(fromCache(cached));
+		}
+		if (lease == null) {
+			return crawlAsync(search, crawled -> {
+			});
+		}
+		CompletableFuture<List<OptionValue>> optionValues = crawlAsync(search,
+				crawled -> store(cache, key, crawled, search));
+		optionValues.whenComplete((result, error) -> cache.releaseLease(key, lease));
 		return optionValues;
 	}
 
 	/**
-	 * Update the Branches Map.
+	 * Starts a crawl.
 	 *
-	 * @param current The branch or version object we are considering.
-	 * @param versionOrBuild The version or build of the object we are considering.
+	 * @param search The search to crawl.
+	 * @param finished Called with the result of a successful crawl, before the
+	 *                 returned future completes.
+	 * @return A future completed with the option values.
 	 */
-	private void updateBranchOrVersionMap(BranchOrVersion current, String versionOrBuild, Map<String, BranchOrVersion> map) {
-		// If we are already tracking the branch, check to ensure this is newer before saving.
-		// Otherwise, it is a new branch to us so start tracking it.
-		if (map.containsKey(versionOrBuild)) {
-			if (current.compareTo(map.get(versionOrBuild)) > 0) {
-				map.put(versionOrBuild, current);
-			}
+	private CompletableFuture<List<OptionValue>> crawlAsync(NexusSearch search, Consumer<Crawled> finished) {
+		CompletableFuture<Crawled> crawled;
+		Runnable cancel;
+		if (search.getIndexTtlMillis() > 0) {
+			// The index crawl is shared with other lookups, so it is never cancelled.
+			cancel = () -> {
+			};
+			crawled = indexed(search, AssetIndex.forSearch(search));
+		} else if (search.isSharded()) {
+			ShardedCrawl<ShardAssets> crawl = new ShardedCrawl<>(client, search.getShards(),
+					() -> new ShardAssets(search));
+			cancel = crawl::cancel;
+			crawled = crawl.start()
+					.thenApply(merged -> new Crawled(merged.aggregator.toOptionValues(), crawl.isComplete()));
 		} else {
-			map.put(versionOrBuild, current);
+			Map<String, String> artifactIds = new HashMap<>();
+			AssetAggregator aggregator = AssetAggregator.forSearch(search);
+			AsyncAssetCrawl crawl = new AsyncAssetCrawl(client, search,
+					(path, recency) -> aggregator.add(parseCache.parse(path, artifactIds).withRecency(recency)));
+			cancel = crawl::cancel;
+			crawled = crawl.start().thenApply(ignored -> new Crawled(aggregator.toOptionValues(), crawl.isComplete()));
 		}
+
+		CompletableFuture<List<OptionValue>> optionValues = new CompletableFuture<>();
+		optionValues.whenComplete((result, error) -> {
+			if (error != null) {
+				cancel.run();
+			}
+		});
+		long crawlTimeout = search.getCrawlTimeoutSeconds();
+		if (crawlTimeout > 0) {
+			optionValues.orTimeout(crawlTimeout, TimeUnit.SECONDS);
+		}
+		crawled.whenComplete((result, error) -> {
+			if (error != null) {
+				optionValues.completeExceptionally(error);
+				return;
+			}
+			if (!optionValues.isDone()) {
+				finished.accept(result);
+			}
+			optionValues.complete(result.optionValues);
+		});
+		return optionValues;
 	}
 
 	/**
-	 * Sorts versions or branches numerically by value instead of key using the compareTo function of the value object.
-	 *
-	 * @param map The map of BranchOrVersion objects, keyed by String.
-	 * @return A list of assets sorted by VersionOrString.
+	 * Answers a search from the shared index of all versions of its component,
+	 * applying the version filter locally.
 	 */
-	static SortedSet<Map.Entry<String, BranchOrVersion>> entriesSortedByValues(
-			Map<String, BranchOrVersion> map) {
-		SortedSet<Map.Entry<String, BranchOrVersion>> sortedEntries =
-				new TreeSet<>((e1, e2) -> e1.getValue().compareTo(e2.getValue()));
-		sortedEntries.addAll(map.entrySet());
-		return sortedEntries;
+	private CompletableFuture<Crawled> indexed(NexusSearch search, AssetIndex index) {
+		NexusSearch unfiltered = search.withoutVersionFilter();
+		return index.assets(search.getIndexTtlMillis(), () -> allPaths(unfiltered), parseCache).thenApply(assets -> {
+			AssetAggregator aggregator = AssetAggregator.aggregate(assets, search::matchesVersion,
+					search.getParallelThreshold());
+			return new Crawled(aggregator.toOptionValues(), index.isComplete());
+		});
 	}
 
 	/**
-	 * Perform the initial Nexus API request.
-	 *
-	 * @return An ArrayList of path strings.
+	 * Waits for a lookup in the shared index for as long as its crawl makes
+	 * progress. A crawl that stalls is stopped, and the lookup answered from the
+	 * assets found so far.
 	 */
-	private ArrayList<String> nexusSearch() {
-		return nexusSearch(null);
+	private Crawled joinIndexed(NexusSearch search) {
+		AssetIndex index = AssetIndex.forSearch(search);
+		CompletableFuture<Crawled> indexed = indexed(search, index);
+		while (true) {
+			try {
+				return indexed.get(search.stallTimeoutMillis(), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				index.stopIfStalled();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return new Crawled(Collections.emptyList(), false);
+			} catch (ExecutionException e) {
+				throw new CompletionException(e.getCause());
+			}
+		}
+	}
+
+	private ShardedCrawl<ShardedCrawl.Paths> allPaths(NexusSearch search) {
+		List<NexusSearch> searches = search.isSharded() ? search.getShards() : Collections.singletonList(search);
+		return ShardedCrawl.paths(client, searches);
 	}
 
 	/**
-	 * Perform the Nexus API request, including continuation for larger result sets.
-	 *
-	 * <p>Since all we need to prepare the option list is path, extract that from the
-	 * JsonNode and return just a list of strings in the interest of conserving
-	 * system resources.
-	 *
-	 * @param continuationToken Continuation token from previous request, null on
-	 *                          first request.
-	 *
-	 * @return An ArrayList of path strings.
+	 * The newest builds one shard has found, parsed and aggregated as its pages
+	 * arrive. The same asset found by two shards is simply kept once.
 	 */
-	private ArrayList<String> nexusSearch(String continuationToken) {
-		ArrayList<String> itemList = new ArrayList<>();
-		String endpointScheme = config.get("endpointScheme");
-		String endpointHost = config.get("endpointHost");
-		String endpointPath = config.get("endpointPath");
-		String endpoint = endpointScheme + "://" + endpointHost + endpointPath;
-		HttpUrl.Builder urlBuilder = buildUrl(endpoint, continuationToken);
-		Builder requestBuilder = new Request.Builder().url(urlBuilder.build());
-		if (config.containsKey("user") && config.containsKey("password")) {
-			requestBuilder.addHeader("Authorization", Credentials.basic(config.get("user"), config.get("password")));
-		}
-		Request request = requestBuilder.build();
-		Response response;
-		String json;
-		try {
-			response = client.newCall(request).execute();
-			ResponseBody body = response.body();
-			if (body == null) {
-				return new ArrayList<>();
-			}
-			json = body.string();
-			if (json.isEmpty()) {
-				return new ArrayList<>();
-			}
-		} catch (NullPointerException | IOException e) {
-			return new ArrayList<>();
+	private final class ShardAssets implements ShardedCrawl.Partial<ShardAssets> {
+
+		private final Map<String, String> artifactIds = new HashMap<>();
+
+		private final AssetAggregator aggregator;
+
+		ShardAssets(NexusSearch search) {
+			aggregator = AssetAggregator.forSearch(search);
 		}
-		ObjectMapper objectMapper = new ObjectMapper();
-		JsonNode tree;
-		try {
-			tree = objectMapper.readTree(json);
-		} catch (JsonProcessingException e1) {
-			return itemList;
-		}
-		Iterator<JsonNode> items = tree.get("items").elements();
-		while (items.hasNext()) {
-			itemList.add(items.next().get("path").asText());
-		}
-		if (tree.has(CONTINUATION_TOKEN)) {
-			String token = tree.path(CONTINUATION_TOKEN).asText();
-			if (!token.isEmpty()) {
-				ArrayList<String> nextItems = nexusSearch(token);
-				itemList.addAll(nextItems);
-			}
+
+		@Override
+		public void add(String path, long recency) {
+			aggregator.add(parseCache.parse(path, artifactIds).withRecency(recency));
 		}
 
-		return itemList;
+		@Override
+		public void merge(ShardAssets later) {
+			aggregator.merge(later.aggregator);
+		}
+	}
+
+	/**
+	 * Chooses the backend for a search and registers the search for webhooks.
+	 * The backend is fixed when the provider is built, never chosen by the search,
+	 * so project configuration cannot direct where cache files are written.
+	 */
+	private OptionCacheBackend cacheFor(NexusSearch search) {
+		OptionCacheBackend cache = cacheBackend != null ? cacheBackend : InMemoryCacheBackend.shared();
+		WebhookInvalidator.register(search, cache);
+		return cache;
+	}
+
+	/**
+	 * Caches the names of the option values. A crawl that ended early is not
+	 * cached, so the next lookup tries again instead of serving a partial list for
+	 * the whole TTL. Neither is an empty list, since it usually means Nexus could
+	 * not be reached.
+	 */
+	private static void store(OptionCacheBackend cache, String key, Crawled crawled, NexusSearch search) {
+		if (!crawled.complete || crawled.optionValues.isEmpty()) {
+			return;
+		}
+		List<String> names = new ArrayList<>(crawled.optionValues.size());
+		for (OptionValue optionValue : crawled.optionValues) {
+			names.add(optionValue.getName());
+		}
+		cache.put(key, names, search.getCacheTtlMillis());
 	}
 
-	private HttpUrl.Builder buildUrl(String endpoint, String continuationToken) {
-		HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(endpoint)).newBuilder();
-		urlBuilder.addQueryParameter("repository", config.get("repository"));
-		urlBuilder.addQueryParameter("name", config.get("componentName"));
-		// For docker, version is the docker tag.
-		urlBuilder.addQueryParameter("sort", "version");
-		if (config.containsKey("componentVersion")) {
-			urlBuilder.addQueryParameter("version", config.get("componentVersion"));
+	private static List<OptionValue> fromCache(OptionCacheBackend.Entry cached) {
+		List<OptionValue> optionValues = new ArrayList<>(cached.getValues().size());
+		for (String name : cached.getValues()) {
+			optionValues.add(new DockerImageOptionValue(name));
 		}
-		if (continuationToken != null) {
-			urlBuilder.addQueryParameter(CONTINUATION_TOKEN, continuationToken);
+		return optionValues;
+	}
+
+	private static List<OptionValue> missingHost() {
+		List<OptionValue> optionValues = new ArrayList<>();
+		String message = "Configure project.plugin.OptionValues.Nexus3OptionProvider.endpointHost";
+		optionValues.add(new ErrorOptionValue(message));
+		return optionValues;
+	}
+
+	/**
+	 * Lazily iterates over the asset paths matching the configured search.
+	 *
+	 * <p>Continuation pages are requested only as the iterator advances, so callers
+	 * can process repositories of any size without holding every path in memory.
+	 *
+	 * @param config The resolved plugin configuration.
+	 * @return An iterator of path strings.
+	 */
+	public Iterator<String> assetPaths(Map<String, String> config) {
+		NexusSearch search = new NexusSearch(config);
+		return new AssetIterator(client, search);
+	}
+
+	/**
+	 * Streams the asset paths matching the configured search, fetching pages on demand.
+	 *
+	 * @param config The resolved plugin configuration.
+	 * @return A sequential stream of path strings.
+	 */
+	public Stream<String> assetStream(Map<String, String> config) {
+		Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(assetPaths(config),
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	/**
+	 * The option values found by a crawl, and whether it reached the last page of
+	 * every search.
+	 */
+	private static final class Crawled {
+		final List<OptionValue> optionValues;
+		final boolean complete;
+
+		Crawled(List<OptionValue> optionValues, boolean complete) {
+			this.optionValues = optionValues;
+			this.complete = complete;
 		}
-		return urlBuilder;
 	}
 
 	/**
@@ -254,8 +461,12 @@ public class OptionProviderImpl {
 		String value;
 
 		public DockerImageOptionValue(BranchOrVersion asset) {
-			this.name = asset.toString();
-			this.value = this.name;
+			this(asset.toString());
+		}
+
+		public DockerImageOptionValue(String name) {
+			this.name = name;
+			this.value = name;
 		}
 
 		@Override
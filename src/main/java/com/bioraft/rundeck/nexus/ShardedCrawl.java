@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Crawls the shards of a search concurrently and merges what they find.
+ *
+ * <p>Continuation tokens force the pages of one search to be fetched one after
+ * another. Running each shard as its own asynchronous crawl lets those chains
+ * proceed side by side, limited only by the bulkhead for the host. Each shard
+ * collects its assets into its own {@link Partial} as its pages arrive, and the
+ * partial results are merged in shard order once the shards are done, so the
+ * result does not depend on which shard answered first. Shards may overlap:
+ * Nexus matches version filters without regard to case, for instance, so
+ * that {@code a*} and {@code A*} return the same assets. Partial results must
+ * therefore tolerate seeing an asset more than once.
+ *
+ * <p>A shard that ends early, because a request timed out in the queue or on
+ * the wire or a page could not be read, leaves the merged result incomplete,
+ * which {@link #isComplete()} reports.
+ *
+ * @since 2026-10-18
+ */
+class ShardedCrawl<P extends ShardedCrawl.Partial<P>> {
+
+	private static final Logger LOGGER = Logger.getLogger(ShardedCrawl.class.getName());
+
+	/**
+	 * What one shard has found, collected as its pages arrive.
+	 *
+	 * @param <P> The implementing type, which partial results are merged into.
+	 */
+	interface Partial<P> {
+
+		/**
+		 * Considers one asset.
+		 */
+		void add(String path, long recency);
+
+		/**
+		 * Adds what a later shard found. Where the two are tied, what this one holds wins.
+		 */
+		void merge(P later);
+	}
+
+	/**
+	 * The distinct asset paths found, in the order they were first returned.
+	 */
+	static final class Paths implements Partial<Paths> {
+
+		private final Set<String> paths = new LinkedHashSet<>();
+
+		@Override
+		public void add(String path, long recency) {
+			paths.add(path);
+		}
+
+		@Override
+		public void merge(Paths later) {
+			paths.addAll(later.paths);
+		}
+
+		List<String> toList() {
+			return new ArrayList<>(paths);
+		}
+	}
+
+	private final List<AsyncAssetCrawl> crawls = new ArrayList<>();
+
+	private final List<P> partials = new ArrayList<>();
+
+	private final Supplier<P> newPartial;
+
+	private final long stallTimeoutMillis;
+
+	/**
+	 * @param shards The searches to crawl.
+	 * @param newPartial Creates an empty partial result, one per shard and one to merge them into.
+	 */
+	ShardedCrawl(OkHttpClient client, List<NexusSearch> shards, Supplier<P> newPartial) {
+		this.newPartial = newPartial;
+		long stall = 0;
+		for (NexusSearch shard : shards) {
+			P partial = newPartial.get();
+			partials.add(partial);
+			crawls.add(new AsyncAssetCrawl(client, shard, (path, recency) -> {
+				// Pages arrive one at a time, but a crawl cut short is merged from another thread.
+				synchronized (partial) {
+					partial.add(path, recency);
+				}
+			}));
+			stall = Math.max(stall, shard.stallTimeoutMillis());
+		}
+		stallTimeoutMillis = stall;
+	}
+
+	/**
+	 * A crawl collecting the distinct paths of all shards.
+	 */
+	static ShardedCrawl<Paths> paths(OkHttpClient client, List<NexusSearch> shards) {
+		return new ShardedCrawl<>(client, shards, Paths::new);
+	}
+
+	/**
+	 * Starts every shard.
+	 *
+	 * @return A future completed with the merged result once all shards are done.
+	 */
+	CompletableFuture<P> start() {
+		CompletableFuture<?>[] done = new CompletableFuture<?>[crawls.size()];
+		for (int i = 0; i < done.length; i++) {
+			done[i] = crawls.get(i).start();
+		}
+		return CompletableFuture.allOf(done).thenApply(ignored -> merge());
+	}
+
+	/**
+	 * Starts every shard and waits for them, for as long as they make progress.
+	 *
+	 * <p>If no shard has received a page within the stall timeout of the search,
+	 * the shards still running are cancelled and what they found so far is
+	 * returned. The result is then incomplete.
+	 *
+	 * @return The merged result.
+	 */
+	P join() {
+		CompletableFuture<P> merged = start();
+		while (true) {
+			try {
+				return merged.get(stallTimeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				if (idleMillis() >= stallTimeoutMillis) {
+					LOGGER.log(Level.WARNING, "Sharded search stalled for {0} ms; returning partial results",
+							String.valueOf(idleMillis()));
+					cancel();
+					return merge();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancel();
+				return merge();
+			} catch (ExecutionException e) {
+				cancel();
+				throw new CompletionException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Cancels every shard that is still running.
+	 */
+	void cancel() {
+		crawls.forEach(AsyncAssetCrawl::cancel);
+	}
+
+	/**
+	 * Ends every shard still running with what it found so far, so the
+	 * future returned by {@link #start()} completes with an incomplete result.
+	 *
+	 * @param reason Why the crawl was stopped, for the log.
+	 */
+	void stop(String reason) {
+		crawls.forEach(crawl -> crawl.stop(reason));
+	}
+
+	/**
+	 * Whether every shard reached its last page.
+	 */
+	boolean isComplete() {
+		for (AsyncAssetCrawl crawl : crawls) {
+			if (!crawl.isComplete()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Milliseconds without progress after which the crawl is considered stalled.
+	 */
+	long stallTimeoutMillis() {
+		return stallTimeoutMillis;
+	}
+
+	/**
+	 * Milliseconds since any shard still running last received a page.
+	 */
+	long idleMillis() {
+		long idle = Long.MAX_VALUE;
+		for (AsyncAssetCrawl crawl : crawls) {
+			if (crawl.isRunning()) {
+				idle = Math.min(idle, crawl.idleMillis());
+			}
+		}
+		return idle == Long.MAX_VALUE ? 0 : idle;
+	}
+
+	/**
+	 * Merges the partial results in shard order.
+	 */
+	private P merge() {
+		P merged = newPartial.get();
+		for (P partial : partials) {
+			synchronized (partial) {
+				merged.merge(partial);
+			}
+		}
+		return merged;
+	}
+}
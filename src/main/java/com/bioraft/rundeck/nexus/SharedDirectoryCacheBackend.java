@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Cache backend that stores entries as files in a directory shared by several
+ * Rundeck nodes, for example on NFS.
+ *
+ * <p>Each key is stored in its own JSON file, named by a hash of the key, along
+ * with the times it was stored and expires. Only the hash is written, since keys
+ * name the Nexus user. Entries are written to a temporary file and renamed into
+ * place, so readers on other nodes see either the old or the new entry, never a
+ * partial one. A lease is a separate file that only one node can create, holding
+ * a token only its owner knows; it is considered abandoned once it is older than
+ * the lease time, and only its owner removes it on release.
+ *
+ * @since 2026-10-18
+ */
+public class SharedDirectoryCacheBackend implements OptionCacheBackend {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final Path directory;
+
+	public SharedDirectoryCacheBackend(String directory) {
+		this(Paths.get(directory));
+	}
+
+	/**
+	 * @param directory An existing directory, mounted by every node.
+	 * @throws IllegalArgumentException If directory is not an existing directory.
+	 */
+	public SharedDirectoryCacheBackend(Path directory) {
+		if (!Files.isDirectory(directory)) {
+			throw new IllegalArgumentException("Not a directory: " + directory);
+		}
+		this.directory = directory;
+	}
+
+	@Override
+	public Entry get(String key) {
+		JsonNode tree;
+		try {
+			tree = OBJECT_MAPPER.readTree(Files.readAllBytes(entryFile(key)));
+		} catch (IOException e) {
+			return null;
+		}
+		// Guard against hash collisions and files written by something else.
+		if (!hash(key).equals(tree.path("keyHash").asText()) || !tree.path("values").isArray()) {
+			return null;
+		}
+		List<String> values = new ArrayList<>();
+		for (JsonNode value : tree.path("values")) {
+			values.add(value.asText());
+		}
+		return new Entry(values, tree.path("storedAt").asLong(), tree.path("expiresAt").asLong());
+	}
+
+	@Override
+	public void put(String key, List<String> values, long ttlMillis) {
+		long now = System.currentTimeMillis();
+		ObjectNode tree = OBJECT_MAPPER.createObjectNode();
+		tree.put("keyHash", hash(key));
+		tree.put("storedAt", now);
+		tree.put("expiresAt", now + ttlMillis);
+		ArrayNode array = tree.putArray("values");
+		values.forEach(array::add);
+
+		Path target = entryFile(key);
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+			Files.write(temporary, OBJECT_MAPPER.writeValueAsBytes(tree));
+			move(temporary, target);
+		} catch (IOException e) {
+			// The cache is only an optimization; the next lookup will crawl again.
+			deleteQuietly(temporary);
+		}
+	}
+
+	@Override
+	public void invalidate(String key) {
+		deleteQuietly(entryFile(key));
+	}
+
+	@Override
+	public String tryLease(String key, long leaseMillis) {
+		Path lease = leaseFile(key);
+		String token = UUID.randomUUID().toString();
+		try {
+			if (createLease(lease, token) || takeAbandonedLease(lease, token, leaseMillis)) {
+				return token;
+			}
+		} catch (IOException e) {
+			// Treated as held by someone else.
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the lease for a key if the lease file still holds the token. A
+	 * lease that was abandoned and taken over by another node is left to that node.
+	 */
+	@Override
+	public void releaseLease(String key, String token) {
+		if (token == null) {
+			return;
+		}
+		Path lease = leaseFile(key);
+		if (token.equals(readQuietly(lease))) {
+			deleteQuietly(lease);
+		}
+	}
+
+	/**
+	 * Creates a lease file holding a token, unless one already exists.
+	 */
+	private static boolean createLease(Path lease, String token) throws IOException {
+		try {
+			Files.write(lease, token.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Takes over a lease left behind by a node that stopped before releasing it.
+	 *
+	 * <p>The abandoned lease is first renamed out of the way, so that of several
+	 * nodes racing here only one removes it. If the file renamed turns out not to
+	 * be the one found abandoned, another node took the lease over in between and
+	 * it is put back.
+	 */
+	private boolean takeAbandonedLease(Path lease, String token, long leaseMillis) throws IOException {
+		String abandoned;
+		try {
+			long age = System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis();
+			if (age < leaseMillis) {
+				return false;
+			}
+			abandoned = new String(Files.readAllBytes(lease), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			// Released meanwhile.
+			return createLease(lease, token);
+		}
+		Path removed = lease.resolveSibling(lease.getFileName() + "." + token);
+		try {
+			move(lease, removed);
+		} catch (NoSuchFileException e) {
+			// Another node got here first.
+			return false;
+		}
+		if (!abandoned.equals(readQuietly(removed))) {
+			try {
+				Files.move(removed, lease);
+			} catch (IOException e) {
+				// A newer lease is already in place.
+			}
+			deleteQuietly(removed);
+			return false;
+		}
+		deleteQuietly(removed);
+		return createLease(lease, token);
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static String readQuietly(Path path) {
+		try {
+			return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void deleteQuietly(Path path) {
+		if (path == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// Nothing more can be done; a stale file will simply expire.
+		}
+	}
+
+	Path entryFile(String key) {
+		return directory.resolve(hash(key) + ".json");
+	}
+
+	Path leaseFile(String key) {
+		return directory.resolve(hash(key) + ".lease");
+	}
+
+	private static String hash(String key) {
+		return NexusSearch.sha256(key);
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.dtolabs.rundeck.plugins.option.OptionValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Applies Nexus repository webhooks to cached option lists, so that new tags
+ * show up without waiting for the cache to expire.
+ *
+ * <p>Accepts the JSON of both component and asset webhooks. When a tag is
+ * created, it is aggregated into every cached list whose search would find it,
+ * which only needs the cached newest build per branch and release. When a tag
+ * is deleted, the list it may have been in is invalidated, since the build it
+ * replaced is no longer known. Lists ordered by recency are always invalidated,
+ * since the cached names do not carry timestamps.
+ *
+ * <p>Each invalidator is bound to the Nexus endpoint its webhooks come from, and
+ * only touches lists cached from searches of that endpoint, so that a tag
+ * pushed to one server never changes lists cached from another.
+ *
+ * <p>Only lists cached in this process are known. In a cluster sharing a cache
+ * directory, deliver webhooks to a node that serves the same lookups. A list is
+ * known for as long as it is cached after its last lookup, and at most
+ * {@value #MAX_REGISTRATIONS} lists are known at once. Only the filters of each
+ * search are kept, never its credentials.
+ *
+ * @since 2026-10-18
+ */
+public class WebhookInvalidator {
+
+	public static final String SIGNATURE_HEADER = "X-Nexus-Webhook-Signature";
+
+	private static final String HMAC_ALGORITHM = "HmacSHA1";
+
+	static final int MAX_REGISTRATIONS = 10000;
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/**
+	 * Filters of searches whose results have been cached, by cache key.
+	 */
+	private static final Map<String, Registration> REGISTERED = new ConcurrentHashMap<>();
+
+	private final SecretKeySpec secret;
+
+	private final String endpoint;
+
+	/**
+	 * @param secret The secret key configured for the webhook in Nexus.
+	 * @param endpoint The search endpoint of the Nexus server sending the webhook,
+	 *                 as endpointScheme://endpointHost followed by endpointPath, for
+	 *                 example https://nexus.example.com/service/rest/v1/search/assets.
+	 */
+	public WebhookInvalidator(String secret, String endpoint) {
+		if (secret == null || secret.isEmpty()) {
+			throw new IllegalArgumentException("A webhook secret is required");
+		}
+		if (endpoint == null || endpoint.isEmpty()) {
+			throw new IllegalArgumentException("A Nexus endpoint is required");
+		}
+		this.secret = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Remembers that the results of a search are cached, so webhooks can find them.
+	 */
+	static void register(NexusSearch search, OptionCacheBackend cache) {
+		long now = System.currentTimeMillis();
+		String key = search.cacheKey();
+		if (!REGISTERED.containsKey(key)) {
+			purgeExpired(now);
+			while (REGISTERED.size() >= MAX_REGISTRATIONS && evictSoonestExpiring()) {
+				// Make room.
+			}
+		}
+		REGISTERED.put(key, new Registration(search, cache, now + search.getCacheTtlMillis()));
+	}
+
+	/**
+	 * Forgets searches whose cached lists have expired without another lookup.
+	 */
+	static void purgeExpired(long now) {
+		REGISTERED.values().removeIf(registration -> registration.expiresAt <= now);
+	}
+
+	/**
+	 * Forgets every search, for tests.
+	 */
+	static void clearRegistrations() {
+		REGISTERED.clear();
+	}
+
+	/**
+	 * Number of searches known.
+	 */
+	static int registrations() {
+		return REGISTERED.size();
+	}
+
+	private static boolean evictSoonestExpiring() {
+		Map.Entry<String, Registration> soonest = null;
+		for (Map.Entry<String, Registration> registered : REGISTERED.entrySet()) {
+			if (soonest == null || registered.getValue().expiresAt < soonest.getValue().expiresAt) {
+				soonest = registered;
+			}
+		}
+		return soonest != null && REGISTERED.remove(soonest.getKey(), soonest.getValue());
+	}
+
+	/**
+	 * Verifies and applies one webhook delivery. The signature is checked against
+	 * the body exactly as received, so pass the request body bytes unchanged.
+	 *
+	 * @param payload The raw request body.
+	 * @param signature The value of the X-Nexus-Webhook-Signature header.
+	 * @return The number of cached lists that were updated or invalidated.
+	 * @throws IllegalArgumentException If the signature is missing or wrong.
+	 */
+	public int handle(byte[] payload, String signature) {
+		if (signature == null || !MessageDigest.isEqual(sign(payload),
+				signature.trim().toLowerCase().getBytes(StandardCharsets.US_ASCII))) {
+			throw new IllegalArgumentException("Invalid webhook signature");
+		}
+
+		JsonNode tree;
+		try {
+			tree = OBJECT_MAPPER.readTree(payload);
+		} catch (IOException e) {
+			return 0;
+		}
+		String repository = tree.path("repositoryName").asText();
+		String action = tree.path("action").asText();
+		String[] component = component(tree);
+		if (component == null) {
+			return 0;
+		}
+		String name = component[0];
+		String tag = component[1];
+
+		purgeExpired(System.currentTimeMillis());
+		int affected = 0;
+		for (Map.Entry<String, Registration> registered : REGISTERED.entrySet()) {
+			Registration registration = registered.getValue();
+			if (!registration.matches(endpoint, repository, name, tag)) {
+				continue;
+			}
+			if ("CREATED".equals(action) && !registration.orderedByRecency) {
+				if (add(registered.getKey(), registration.cache, name, tag)) {
+					affected++;
+				}
+			} else if ("CREATED".equals(action) || "DELETED".equals(action)) {
+				registration.cache.invalidate(registered.getKey());
+				affected++;
+			}
+		}
+		return affected;
+	}
+
+	/**
+	 * Verifies and applies one webhook delivery whose body has already been read
+	 * as text. The text is encoded as UTF-8 before the signature is checked, so
+	 * this only verifies if it was decoded from UTF-8 without any change: no
+	 * replaced malformed bytes, no byte order mark and no normalized line
+	 * endings. Prefer {@link #handle(byte[], String)} with the raw body.
+	 *
+	 * @param body The request body, decoded from UTF-8.
+	 * @param signature The value of the X-Nexus-Webhook-Signature header.
+	 * @return The number of cached lists that were updated or invalidated.
+	 * @throws IllegalArgumentException If the signature is missing or wrong.
+	 */
+	public int handle(String body, String signature) {
+		return handle(body.getBytes(StandardCharsets.UTF_8), signature);
+	}
+
+	/**
+	 * Aggregates a new tag into a cached list. Cached names are turned back into
+	 * paths and aggregated ahead of the new tag, so ties keep the cached entry.
+	 *
+	 * @return True if there was a cached list to update.
+	 */
+	private static boolean add(String key, OptionCacheBackend cache, String name, String tag) {
+		OptionCacheBackend.Entry cached = cache.get(key);
+		if (cached == null) {
+			return false;
+		}
+		AssetAggregator aggregator = new AssetAggregator();
+		for (String option : cached.getValues()) {
+			int colon = option.lastIndexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+			aggregator.add(new BranchOrVersion(path(option.substring(0, colon), option.substring(colon + 1))));
+		}
+		aggregator.add(new BranchOrVersion(path(name, tag)));
+
+		List<String> names = new ArrayList<>();
+		for (OptionValue optionValue : aggregator.toOptionValues()) {
+			names.add(optionValue.getName());
+		}
+		// Keep the original expiry; the next scheduled refresh still happens.
+		cache.put(key, names, Math.max(0, cached.getExpiresAt() - System.currentTimeMillis()));
+		return true;
+	}
+
+	/**
+	 * Extracts the component name and tag from a component or docker manifest
+	 * asset webhook.
+	 *
+	 * @return The name and tag, or null if the webhook is not about a tag.
+	 */
+	private static String[] component(JsonNode tree) {
+		JsonNode component = tree.path("component");
+		if (component.isObject()) {
+			String name = component.path("name").asText();
+			String version = component.path("version").asText();
+			return name.isEmpty() || version.isEmpty() ? null : new String[] { name, version };
+		}
+		// Docker manifests are stored as v2/{name}/manifests/{tag}.
+		String asset = tree.path("asset").path("name").asText();
+		int manifests = asset.lastIndexOf("/manifests/");
+		if (!asset.startsWith("v2/") || manifests < 3) {
+			return null;
+		}
+		String tag = asset.substring(manifests + "/manifests/".length());
+		if (tag.isEmpty() || tag.startsWith("sha256:")) {
+			return null;
+		}
+		return new String[] { asset.substring(3, manifests), tag };
+	}
+
+	private static String path(String name, String tag) {
+		return "v2/" + name + "/manifests/" + tag;
+	}
+
+	/**
+	 * Computes the lowercase hex HMAC-SHA1 signature Nexus sends for a payload.
+	 */
+	byte[] sign(byte[] payload) {
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(secret);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : mac.doFinal(payload)) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString().getBytes(StandardCharsets.US_ASCII);
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			// Every Java platform is required to support HmacSHA1.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The endpoint and filters of a cached search, the backend holding its
+	 * results, and when they expire.
+	 */
+	private static class Registration {
+		final String endpoint;
+		final String repository;
+		final String componentName;
+		final String componentVersion;
+		final boolean orderedByRecency;
+		final OptionCacheBackend cache;
+		final long expiresAt;
+
+		Registration(NexusSearch search, OptionCacheBackend cache, long expiresAt) {
+			this.endpoint = search.endpoint();
+			this.repository = search.getRepository();
+			this.componentName = search.getComponentName();
+			this.componentVersion = search.getComponentVersion();
+			this.orderedByRecency = search.isOrderedByRecency();
+			this.cache = cache;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * Whether a component in a repository of an endpoint would be found by the search.
+		 *
+		 * @param endpoint The search endpoint of the Nexus server.
+		 * @param repository The repository name.
+		 * @param name The component name.
+		 * @param version The component version, or docker tag.
+		 */
+		boolean matches(String endpoint, String repository, String name, String version) {
+			return this.endpoint.equals(endpoint) && Objects.equals(this.repository, repository)
+					&& NexusSearch.filterMatches(componentName, name)
+					&& NexusSearch.filterMatches(componentVersion, version);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for AssetAggregator.
+ *
+ * @since 2026-10-18
+ */
+public class AssetAggregatorTest {
+
+	private static final String[] PREFIXES = { "", "v", "rc" };
+
+	private static final String[] SEPARATORS = { "-", "_", "+" };
+
+	@Test
+	public void tiesKeepFirstSeen() {
+		AssetAggregator aggregator = new AssetAggregator();
+		aggregator.add(new BranchOrVersion("v2/component/manifests/1.2.3-3"));
+		aggregator.add(new BranchOrVersion("v2/component/manifests/v1.2.3-3"));
+		assertEquals("component:1.2.3-3", aggregator.toOptionValues().get(0).getName());
+	}
+
+	@Test
+	public void parallelMatchesSequential() {
+		List<BranchOrVersion> assets = randomAssets(50000, 1);
+		for (String filter : new String[] { "*", "1.*", "ISSUE-1*", "v?.1*" }) {
+			AssetAggregator sequential = new AssetAggregator();
+			for (BranchOrVersion asset : assets) {
+				if (NexusSearch.filterMatches(filter, asset.getComponentVersion())) {
+					sequential.add(asset);
+				}
+			}
+			AssetAggregator parallel = AssetAggregator.aggregate(assets,
+					asset -> NexusSearch.filterMatches(filter, asset.getComponentVersion()), 1);
+
+			List<String> expected = names(sequential.toOptionValues());
+			assertTrue(filter, expected.size() > 10);
+			assertEquals(filter, expected, names(parallel.toOptionValues()));
+		}
+	}
+
+	@Test
+	public void mergeAtAnySplitMatchesSequential() {
+		List<BranchOrVersion> assets = randomAssets(2000, 2);
+		AssetAggregator sequential = new AssetAggregator();
+		assets.forEach(sequential::add);
+		List<String> expected = names(sequential.toOptionValues());
+
+		for (int split = 0; split <= assets.size(); split += 97) {
+			AssetAggregator first = new AssetAggregator();
+			AssetAggregator second = new AssetAggregator();
+			for (int i = 0; i < assets.size(); i++) {
+				(i < split ? first : second).add(assets.get(i));
+			}
+			first.merge(second);
+			assertEquals(expected, names(first.toOptionValues()));
+		}
+	}
+
+	@Test
+	public void mergingInOrderMatchesAddingInOrder() {
+		String[] tags = { "1.2.3-3", "ISSUE-1_4", "v1.2.3-3", "1.2.3-11", "ISSUE-1_12", "sprint_11-4", "2.0.0-1",
+				"sprint_11-13", "v2.0.0-1", "ISSUE-2_3" };
+		AssetAggregator single = new AssetAggregator();
+		AssetAggregator merged = new AssetAggregator();
+		for (int start = 0; start < tags.length; start += 3) {
+			AssetAggregator partial = new AssetAggregator();
+			for (int i = start; i < Math.min(start + 3, tags.length); i++) {
+				BranchOrVersion asset = new BranchOrVersion("v2/component/manifests/" + tags[i]);
+				single.add(asset);
+				partial.add(asset);
+			}
+			merged.merge(partial);
+		}
+
+		assertEquals(names(single.toOptionValues()), names(merged.toOptionValues()));
+		assertEquals("component:2.0.0-1", merged.toOptionValues().get(0).getName());
+	}
+
+	@Test
+	public void mergeKeepsEarlierOfEqualAssets() {
+		AssetAggregator earlier = new AssetAggregator();
+		earlier.add(new BranchOrVersion("v2/component/manifests/v1.2.3-3"));
+		AssetAggregator later = new AssetAggregator();
+		later.add(new BranchOrVersion("v2/component/manifests/1.2.3-3"));
+
+		earlier.merge(later);
+
+		assertEquals("component:v1.2.3-3", earlier.toOptionValues().get(0).getName());
+	}
+
+	/**
+	 * Generates assets with many builds per branch or release, including prefixed
+	 * versions that compare equal to unprefixed ones, in version order as an index
+	 * holds them.
+	 */
+	private static List<BranchOrVersion> randomAssets(int count, long seed) {
+		Random random = new Random(seed);
+		List<BranchOrVersion> assets = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String tag;
+			if (random.nextBoolean()) {
+				tag = PREFIXES[random.nextInt(PREFIXES.length)] + random.nextInt(5) + "." + random.nextInt(20) + "."
+						+ random.nextInt(10);
+			} else {
+				tag = "ISSUE-" + random.nextInt(200) + "-branch";
+			}
+			tag += SEPARATORS[random.nextInt(SEPARATORS.length)] + random.nextInt(50);
+			assets.add(new BranchOrVersion("v2/component/manifests/" + tag));
+		}
+		assets.sort(BranchOrVersion::compareTo);
+		return assets;
+	}
+}
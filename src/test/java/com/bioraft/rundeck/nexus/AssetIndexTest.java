@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.delay;
+import static com.bioraft.rundeck.nexus.FakeNexus.item;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.offsetPage;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dtolabs.rundeck.plugins.option.OptionValue;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests for the shared AssetIndex.
+ *
+ * @since 2026-10-18
+ */
+public class AssetIndexTest {
+
+	private static final AtomicInteger HOSTS = new AtomicInteger();
+
+	private static final String[] FILTERS = { "*", "1.*", "sprint_*", "*-4", "1.2.3-?" };
+
+	private static final List<String> TAGS = Arrays.asList("sprint_11-13", "1.2.3-4", "sprint_11-4", "v1.2.3-4",
+			"1.2.2-21", "ISSUE-234-one-issue-2", "1.2.3-11", "2.0.0-1", "1.2.2-2", "sprint_12-4");
+
+	private static final int PAGE_SIZE = 4;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	/**
+	 * Holds back every page after the first until released, if set.
+	 */
+	private volatile CountDownLatch stalled;
+
+	private Map<String, String> configuration;
+
+	private OptionProviderImpl subject;
+
+	@Before
+	public void setUp() {
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		// Indexes are process-wide, so give each test its own.
+		configuration.put("endpointHost", "index" + HOSTS.incrementAndGet() + ".example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "COMP_NAME");
+
+		OkHttpClient client = client(chain -> page(chain.request()));
+		subject = new OptionProviderImpl(client, new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT));
+	}
+
+	@Test
+	public void filteredViewsMatchTheirOwnCrawls() {
+		List<List<String>> expected = new ArrayList<>();
+		for (String filter : FILTERS) {
+			configuration.put("componentVersion", filter);
+			expected.add(names(subject.getOptionValues(configuration)));
+		}
+		assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:1.2.3-4"), expected.get(4));
+
+		requests.set(0);
+		configuration.put("indexTtl", "60");
+		for (int i = 0; i < FILTERS.length; i++) {
+			configuration.put("componentVersion", FILTERS[i]);
+			assertEquals(FILTERS[i], expected.get(i), names(subject.getOptionValues(configuration)));
+		}
+		assertEquals(pages(), requests.get());
+	}
+
+	@Test
+	public void versionFilterIgnoresCase() {
+		configuration.put("componentVersion", "SPRINT_*");
+		List<String> crawled = names(subject.getOptionValues(configuration));
+		configuration.put("indexTtl", "60");
+
+		assertEquals(Arrays.asList("COMP_NAME:sprint_11-13", "COMP_NAME:sprint_12-4"), crawled);
+		assertEquals(crawled, names(subject.getOptionValues(configuration)));
+	}
+
+	@Test
+	public void parallelViewsMatchSequentialViews() {
+		configuration.put("indexTtl", "60");
+		for (String filter : FILTERS) {
+			configuration.put("componentVersion", filter);
+			configuration.put("parallelThreshold", "0");
+			List<String> sequential = names(subject.getOptionValues(configuration));
+			configuration.put("parallelThreshold", "1");
+			assertEquals(filter, sequential, names(subject.getOptionValues(configuration)));
+		}
+	}
+
+	@Test
+	public void concurrentLookupsShareOneCrawl() throws Exception {
+		configuration.put("indexTtl", "60");
+		List<CompletableFuture<List<OptionValue>>> lookups = new ArrayList<>();
+		for (String filter : FILTERS) {
+			Map<String, String> filtered = new HashMap<>(configuration);
+			filtered.put("componentVersion", filter);
+			lookups.add(subject.getOptionValuesAsync(filtered));
+		}
+		for (CompletableFuture<List<OptionValue>> lookup : lookups) {
+			assertFalse(lookup.get(10, TimeUnit.SECONDS).isEmpty());
+		}
+		assertEquals(pages(), requests.get());
+	}
+
+	@Test
+	public void recrawlsWhenExpiredOrEmpty() {
+		AssetIndex index = new AssetIndex();
+		BranchOrVersionCache parseCache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		AtomicInteger crawls = new AtomicInteger();
+		List<String> paths = Arrays.asList("v2/COMP_NAME/manifests/1.2.3-4", "v2/COMP_NAME/manifests/1.2.2-2");
+
+		index.assets(60000, () -> crawl(crawls, Collections.emptyList()), parseCache).join();
+		List<BranchOrVersion> assets = index.assets(60000, () -> crawl(crawls, paths), parseCache).join();
+		index.assets(60000, () -> crawl(crawls, paths), parseCache).join();
+		assertEquals(2, crawls.get());
+		assertEquals("COMP_NAME:1.2.2-2", assets.get(0).toString());
+
+		index.assets(0, () -> crawl(crawls, paths), parseCache).join();
+		assertEquals(3, crawls.get());
+	}
+
+	@Test
+	public void crawlCutShortIsReturnedAndReplaced() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		stalled = release;
+		configuration.put("indexTtl", "60");
+		configuration.put("requestTimeout", "1");
+
+		try {
+			long start = System.nanoTime();
+			List<String> partial = names(subject.getOptionValues(configuration));
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:sprint_11-13", "COMP_NAME:1.2.3-4"), partial);
+			assertTrue(elapsedMillis + "ms", elapsedMillis < 5000);
+		} finally {
+			stalled = null;
+			release.countDown();
+		}
+
+		requests.set(0);
+		List<String> names = names(subject.getOptionValues(configuration));
+		assertEquals(pages(), requests.get());
+		assertTrue(names.contains("COMP_NAME:2.0.0-1"));
+	}
+
+	@Test
+	public void dropsExpiredIndexes() {
+		NexusSearch search = new NexusSearch(configuration);
+		BranchOrVersionCache parseCache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		List<String> paths = Arrays.asList("v2/COMP_NAME/manifests/1.2.3-4");
+
+		AssetIndex index = AssetIndex.forSearch(search);
+		index.assets(60000, () -> crawl(new AtomicInteger(), paths), parseCache).join();
+		assertSame(index, AssetIndex.forSearch(search));
+
+		index.assets(0, () -> crawl(new AtomicInteger(), paths), parseCache).join();
+		assertNotSame(index, AssetIndex.forSearch(search));
+	}
+
+	@Test
+	public void credentialsDoNotShareIndexes() {
+		configuration.put("user", "deploy");
+		configuration.put("password", "right");
+		AssetIndex index = AssetIndex.forSearch(new NexusSearch(configuration));
+		assertSame(index, AssetIndex.forSearch(new NexusSearch(configuration)));
+
+		configuration.put("password", "wrong");
+		assertNotSame(index, AssetIndex.forSearch(new NexusSearch(configuration)));
+		configuration.put("user", "other");
+		configuration.put("password", "right");
+		assertNotSame(index, AssetIndex.forSearch(new NexusSearch(configuration)));
+	}
+
+	@Test
+	public void sortKeepsEqualAssetsInCrawlOrder() {
+		AssetIndex index = new AssetIndex();
+		BranchOrVersionCache parseCache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		List<String> paths = Arrays.asList("v2/COMP_NAME/manifests/v1.2.3-4", "v2/COMP_NAME/manifests/2.0.0-1",
+				"v2/COMP_NAME/manifests/1.2.3-4");
+
+		List<BranchOrVersion> assets = index.assets(60000, () -> crawl(new AtomicInteger(), paths), parseCache).join();
+
+		assertEquals("COMP_NAME:v1.2.3-4", assets.get(0).toString());
+		assertEquals("COMP_NAME:1.2.3-4", assets.get(1).toString());
+		assertEquals("COMP_NAME:2.0.0-1", assets.get(2).toString());
+	}
+
+	/**
+	 * A crawl answered with a single page of paths.
+	 */
+	private ShardedCrawl<ShardedCrawl.Paths> crawl(AtomicInteger crawls, List<String> paths) {
+		crawls.incrementAndGet();
+		List<String> items = new ArrayList<>();
+		for (String path : paths) {
+			items.add("{\"path\": \"" + path + "\"}");
+		}
+		OkHttpClient client = client(chain -> respond(chain.request(), String.join(",", items), null));
+		return ShardedCrawl.paths(client, Collections.singletonList(new NexusSearch(configuration)));
+	}
+
+	private int pages() {
+		return (TAGS.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+	}
+
+	/**
+	 * Answers with the page of tags matching the version filter that starts at the
+	 * offset given as continuation token, after a short delay.
+	 */
+	private Response page(Request request) throws IOException {
+		delay(20);
+		requests.incrementAndGet();
+		CountDownLatch latch = stalled;
+		if (latch != null && request.url().queryParameter(NexusSearch.CONTINUATION_TOKEN) != null) {
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+		String version = request.url().queryParameter("version");
+		List<String> matches = new ArrayList<>();
+		for (String tag : TAGS) {
+			if (version == null || NexusSearch.globMatches(version, tag)) {
+				matches.add(item(tag));
+			}
+		}
+		return offsetPage(request, matches, PAGE_SIZE);
+	}
+}
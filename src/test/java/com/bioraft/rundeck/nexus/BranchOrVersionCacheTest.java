@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for BranchOrVersionCache.
+ *
+ * @since 2026-10-18
+ */
+public class BranchOrVersionCacheTest {
+
+	private static final String PATH = "v2/component/manifests/";
+
+	@Test
+	public void returnsSameInstanceOnHit() {
+		BranchOrVersionCache cache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		Map<String, String> artifactIds = new HashMap<>();
+		BranchOrVersion first = cache.parse(PATH + "1.2.3-4", artifactIds);
+		BranchOrVersion second = cache.parse(PATH + "1.2.3-4", artifactIds);
+
+		assertSame(first, second);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate(), 0.0001);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void warmLookupOnlyHits() {
+		BranchOrVersionCache cache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		for (int i = 0; i < 1000; i++) {
+			cache.parse(PATH + "sprint-11_" + i, new HashMap<>());
+		}
+		assertEquals(0, cache.getHits());
+		assertEquals(1000, cache.getMisses());
+
+		for (int i = 0; i < 1000; i++) {
+			cache.parse(PATH + "sprint-11_" + i, new HashMap<>());
+		}
+		assertEquals(1000, cache.getHits());
+		assertEquals(1000, cache.getMisses());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedByWeight() {
+		String oldest = PATH + "1.0.0-1";
+		String recent = PATH + "1.0.0-2";
+		String newest = PATH + "1.0.0-3";
+		long weight = BranchOrVersionCache.weigh(oldest, new BranchOrVersion(oldest));
+		BranchOrVersionCache cache = new BranchOrVersionCache(2 * weight);
+		cache.parse(oldest, null);
+		cache.parse(recent, null);
+		cache.parse(oldest, null);
+		cache.parse(newest, null);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+
+		cache.parse(oldest, null);
+		assertEquals(2, cache.getHits());
+		// The recent entry was evicted since oldest had been used after it.
+		cache.parse(recent, null);
+		assertEquals(4, cache.getMisses());
+	}
+
+	@Test
+	public void weighsParsedState() {
+		String simple = PATH + "develop";
+		String complex = PATH + "rc1.2.3-alpha4-beta_17";
+		BranchOrVersionCache cache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		cache.parse(simple, null);
+		long simpleWeight = cache.getWeight();
+		cache.clear();
+		cache.parse(complex, null);
+
+		// Longer tags have more tokens in their comparison key, not just more characters.
+		assertTrue(cache.getWeight() - simpleWeight > 4L * (complex.length() - simple.length()));
+		assertEquals(BranchOrVersionCache.weigh(complex, new BranchOrVersion(complex)), cache.getWeight());
+	}
+
+	@Test
+	public void stripesLargeCachesOnly() {
+		assertEquals(1, new BranchOrVersionCache(0).stripeCount());
+		assertEquals(1, new BranchOrVersionCache(1024 * 1024).stripeCount());
+		assertEquals(4, new BranchOrVersionCache(5L * 1024 * 1024).stripeCount());
+		assertEquals(16, new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT).stripeCount());
+	}
+
+	@Test
+	public void concurrentParsesKeepCountsAndWeight() throws Exception {
+		final int threads = 8;
+		final int paths = 5000;
+		BranchOrVersionCache cache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < paths; i++) {
+						cache.parse(PATH + "1." + (i % 50) + "." + i + "-" + i, null);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(paths, cache.size());
+		assertEquals((long) threads * paths, cache.getHits() + cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+		long weight = 0;
+		for (int i = 0; i < paths; i++) {
+			String path = PATH + "1." + (i % 50) + "." + i + "-" + i;
+			weight += BranchOrVersionCache.weigh(path, new BranchOrVersion(path));
+		}
+		assertEquals(weight, cache.getWeight());
+	}
+
+	@Test
+	public void clearResetsWeight() {
+		BranchOrVersionCache cache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		cache.parse(PATH + "1.2.3-4", null);
+		assertTrue(cache.getWeight() > 0);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void sharedCacheIsSingleton() {
+		assertSame(BranchOrVersionCache.shared(), BranchOrVersionCache.shared());
+	}
+}
@@ -16,6 +16,13 @@
 package com.bioraft.rundeck.nexus;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -77,6 +84,72 @@ public class BranchOrVersionTest {
 		assertEquals(0, subject(EMPTY).compareTo(subject(EMPTY)));
 	}
 
+	@Test
+	public void testVersionDetection() {
+		assertTrue(subject("1.2.3-3").isVersion());
+		assertTrue(subject("v1.2-3").isVersion());
+		assertTrue(subject("rc141.1").isVersion());
+		assertTrue(subject("20240720.1").isVersion());
+		assertFalse(subject("sprint-11_4").isVersion());
+		assertFalse(subject("ISSUE-1234-bug-description-2").isVersion());
+		assertFalse(subject("1.x-2").isVersion());
+		assertFalse(subject("v-1.2").isVersion());
+	}
+
+	@Test
+	public void testReleaseCandidateBuild() {
+		assertEquals("rc", subject("rc141.1").getBuild());
+		assertEquals("4rc", subject("rc1.2.3-4").getBuild());
+		assertEquals("rc1", subject("rc1").getVersion());
+	}
+
+	@Test
+	public void testVersionWithRegexCharacters() {
+		runTest("COMPONENT", "1.0+local", "-", "3");
+		runTest("COMPONENT", "feature(x)", "_", "7");
+	}
+
+	@Test
+	public void testSharedArtifactId() {
+		Map<String, String> artifactIds = new HashMap<>();
+		BranchOrVersion first = new BranchOrVersion("v2/component/manifests/1.2.3-1", artifactIds);
+		BranchOrVersion second = new BranchOrVersion("v2/component/manifests/1.2.3-2", artifactIds);
+		assertSame(first.getArtifactId(), second.getArtifactId());
+		assertEquals(1, artifactIds.size());
+
+		BranchOrVersion unshared = subject("1.2.3-2");
+		assertNotSame(first.getArtifactId(), unshared.getArtifactId());
+		assertEquals(first.getArtifactId(), unshared.getArtifactId());
+	}
+
+	@Test
+	public void compactLayoutRetainsLessThanSeparateStrings() {
+		Map<String, String> artifactIds = new HashMap<>();
+		long compact = BranchOrVersion.stringBytes("component".length());
+		long separate = 0;
+		for (int build = 1; build <= 500; build++) {
+			for (String version : new String[] { "1.2.3", "10.20.30", "master", "feature_login" }) {
+				BranchOrVersion asset = new BranchOrVersion("v2/component/manifests/" + version + "-" + build,
+						artifactIds);
+				compact += asset.instanceBytes();
+				separate += separateStringBytes(asset);
+			}
+		}
+		assertTrue(compact + " vs " + separate, compact * 3 < separate);
+	}
+
+	/**
+	 * Estimates an asset kept as an object with five String fields: its own
+	 * artifactId, the version or branch, the build, the tag and the comparison
+	 * string, which equals the tag when it has no "v" or "rc" prefix.
+	 */
+	private static long separateStringBytes(BranchOrVersion asset) {
+		return 32 + BranchOrVersion.stringBytes(asset.getArtifactId().length())
+				+ BranchOrVersion.stringBytes(asset.getVersion().length())
+				+ BranchOrVersion.stringBytes(asset.getBuild().length())
+				+ 2 * BranchOrVersion.stringBytes(asset.getComponentVersion().length());
+	}
+
 	public void runTest(String component, String version, String separator, String build) {
 		BranchOrVersion subject;
 		subject = new BranchOrVersion("v2/" + component + "/manifests/" + version + separator + build);
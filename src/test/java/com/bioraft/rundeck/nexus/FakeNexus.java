@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dtolabs.rundeck.plugins.option.OptionValue;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Helpers for tests that stand in for the Nexus search API with an OkHttp
+ * interceptor instead of a server.
+ *
+ * @since 2026-10-18
+ */
+final class FakeNexus {
+
+	private FakeNexus() {
+	}
+
+	/**
+	 * Builds a client whose requests are all answered by an interceptor.
+	 */
+	static OkHttpClient client(Interceptor interceptor) {
+		return new OkHttpClient.Builder().addInterceptor(interceptor).build();
+	}
+
+	/**
+	 * A search result item for a tag of COMP_NAME.
+	 */
+	static String item(String tag) {
+		return item("COMP_NAME", tag);
+	}
+
+	/**
+	 * A search result item for a tag of a component.
+	 */
+	static String item(String name, String tag) {
+		return "{\"path\": \"v2/" + name + "/manifests/" + tag + "\"}";
+	}
+
+	/**
+	 * Answers a search with a page of items.
+	 *
+	 * @param request The search being answered.
+	 * @param items Comma separated JSON items.
+	 * @param continuationToken Token for the next page, or null on the last page.
+	 */
+	static Response respond(Request request, String items, String continuationToken) {
+		String next = continuationToken == null ? "" : ", \"continuationToken\" : \"" + continuationToken + "\"";
+		String json = "{\"items\":[" + items + "]" + next + "}";
+		ResponseBody body = ResponseBody.create(MediaType.parse("application/json"), json);
+		return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).body(body).code(200).message("OK")
+				.build();
+	}
+
+	/**
+	 * Answers a search with the items that start at the offset given as
+	 * continuation token, handing out the offset of the next page as its token.
+	 */
+	static Response offsetPage(Request request, List<String> items, int pageSize) {
+		String token = request.url().queryParameter(NexusSearch.CONTINUATION_TOKEN);
+		int offset = token == null ? 0 : Integer.parseInt(token);
+		int end = Math.min(offset + pageSize, items.size());
+		String next = end < items.size() ? String.valueOf(end) : null;
+		return respond(request, String.join(",", items.subList(offset, end)), next);
+	}
+
+	/**
+	 * Simulates the latency of a search.
+	 */
+	static void delay(long millis) throws IOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	static List<String> names(List<OptionValue> optionValues) {
+		List<String> names = new ArrayList<>();
+		for (OptionValue optionValue : optionValues) {
+			names.add(optionValue.getName());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.item;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Tests for HostBulkhead.
+ *
+ * @since 2026-10-18
+ */
+public class HostBulkheadTest {
+
+	@Test
+	public void grantsUpToLimitImmediately() throws Exception {
+		HostBulkhead bulkhead = new HostBulkhead(2, 0);
+		HostBulkhead.Permit first = bulkhead.acquire(10);
+		HostBulkhead.Permit second = bulkhead.acquire(10);
+		assertEquals(2, bulkhead.getInFlight());
+		first.release();
+		second.release();
+		assertEquals(0, bulkhead.getInFlight());
+		assertEquals(2, bulkhead.getGranted());
+	}
+
+	@Test
+	public void timesOutWhenFull() throws Exception {
+		HostBulkhead bulkhead = new HostBulkhead(1, 0);
+		HostBulkhead.Permit held = bulkhead.acquire(10);
+		try {
+			bulkhead.acquire(20);
+			fail("Expected TimeoutException");
+		} catch (TimeoutException e) {
+			assertEquals(1, bulkhead.getTimeouts());
+		}
+		held.release();
+		assertEquals(0, bulkhead.getInFlight());
+		bulkhead.acquire(10).release();
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+	@Test
+	public void grantsWaitersInArrivalOrder() throws Exception {
+		HostBulkhead bulkhead = new HostBulkhead(1, 0);
+		HostBulkhead.Permit held = bulkhead.acquire(10);
+		CompletableFuture<HostBulkhead.Permit> first = bulkhead.acquireAsync();
+		CompletableFuture<HostBulkhead.Permit> second = bulkhead.acquireAsync();
+		assertEquals(2, bulkhead.getQueueLength());
+
+		held.release();
+		assertTrue(first.isDone());
+		assertFalse(second.isDone());
+
+		first.join().release();
+		assertTrue(second.isDone());
+		second.join().release();
+		assertEquals(0, bulkhead.getInFlight());
+		assertEquals(3, bulkhead.getGranted());
+	}
+
+	@Test
+	public void skipsCancelledWaiters() throws Exception {
+		HostBulkhead bulkhead = new HostBulkhead(1, 0);
+		HostBulkhead.Permit held = bulkhead.acquire(10);
+		CompletableFuture<HostBulkhead.Permit> cancelled = bulkhead.acquireAsync();
+		CompletableFuture<HostBulkhead.Permit> waiting = bulkhead.acquireAsync();
+		cancelled.cancel(false);
+
+		held.release();
+		assertTrue(waiting.isDone());
+		assertEquals(1, bulkhead.getInFlight());
+		waiting.join().release();
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+	@Test
+	public void releasingTwiceIsHarmless() throws Exception {
+		HostBulkhead bulkhead = new HostBulkhead(1, 0);
+		HostBulkhead.Permit permit = bulkhead.acquire(10);
+		permit.release();
+		permit.release();
+		assertEquals(0, bulkhead.getInFlight());
+	}
+
+	@Test
+	public void halvesLimitWhenSlowAndRecoversWhenFast() throws Exception {
+		HostBulkhead bulkhead = new HostBulkhead(4, 50);
+		HostBulkhead.Permit slow = bulkhead.acquire(10);
+		Thread.sleep(60);
+		slow.release();
+		assertEquals(2, bulkhead.getLimit());
+
+		// Two fast completions make a full window at limit 2, then three at limit 3.
+		for (int i = 0; i < 5; i++) {
+			bulkhead.acquire(10).release();
+		}
+		assertEquals(4, bulkhead.getLimit());
+	}
+
+	@Test
+	public void sharesBulkheadPerHost() {
+		HostBulkhead first = HostBulkhead.forHost("bulkhead.example.com", 3, 0);
+		HostBulkhead second = HostBulkhead.forHost("bulkhead.example.com", 7, 0);
+		assertSame(first, second);
+		assertEquals(3, second.getLimit());
+		assertSame(first, HostBulkhead.all().get("bulkhead.example.com"));
+	}
+
+	@Test
+	public void iteratorReportsCrawlCutShortByQueueTimeout() throws Exception {
+		Map<String, String> configuration = new HashMap<>();
+		configuration.put("endpointHost", "truncated.example.com");
+		configuration.put("maxConcurrentRequests", "1");
+		configuration.put("queueTimeout", "1");
+		NexusSearch search = new NexusSearch(configuration);
+		OkHttpClient client = client(chain -> respond(chain.request(), item("1.2.3-4"), null));
+
+		HostBulkhead.Permit held = search.bulkhead().acquire(10);
+		AssetIterator truncated = new AssetIterator(client, search);
+		assertFalse(truncated.hasNext());
+		assertFalse(truncated.isComplete());
+		held.release();
+
+		AssetIterator complete = new AssetIterator(client, search);
+		assertFalse(complete.isComplete());
+		assertEquals("v2/COMP_NAME/manifests/1.2.3-4", complete.next());
+		assertFalse(complete.hasNext());
+		assertTrue(complete.isComplete());
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.item;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import okhttp3.Credentials;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Stress test for one Nexus3OptionProvider instance serving many concurrent
+ * lookups, each for a different component and user.
+ *
+ * @since 2026-10-18
+ */
+public class Nexus3OptionProviderConcurrencyTest {
+
+	private static final int THREADS = 16;
+
+	private static final int CALLS_PER_THREAD = 25;
+
+	private static final int PAGES = 3;
+
+	@Test
+	public void concurrentLookupsDoNotShareState() throws Exception {
+		OkHttpClient client = client(chain -> page(chain.request()));
+		Nexus3OptionProvider subject = new Nexus3OptionProvider(client);
+
+		List<List<String>> expected = new ArrayList<>();
+		for (int component = 0; component < THREADS; component++) {
+			expected.add(names(subject.getOptionValues(configuration(component))));
+			assertEquals(3, expected.get(component).size());
+			assertEquals("component-" + component + ":1." + component + ".0-" + PAGES, expected.get(component).get(0));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CyclicBarrier start = new CyclicBarrier(THREADS);
+		List<Future<List<String>>> failures = new ArrayList<>();
+		try {
+			for (int thread = 0; thread < THREADS; thread++) {
+				final int first = thread;
+				failures.add(executor.submit(() -> {
+					start.await(10, TimeUnit.SECONDS);
+					List<String> mismatches = new ArrayList<>();
+					for (int call = 0; call < CALLS_PER_THREAD; call++) {
+						int component = (first + call) % THREADS;
+						List<String> actual = names(subject.getOptionValues(configuration(component)));
+						if (!expected.get(component).equals(actual)) {
+							mismatches.add("component-" + component + " got " + actual);
+						}
+					}
+					return mismatches;
+				}));
+			}
+			for (Future<List<String>> future : failures) {
+				assertEquals(new ArrayList<String>(), future.get(60, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Map<String, String> configuration(int component) {
+		Map<String, String> configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "concurrent.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "component-" + component);
+		configuration.put("user", "user-" + component);
+		configuration.put("password", "secret");
+		configuration.put("maxConcurrentRequests", String.valueOf(THREADS));
+		return configuration;
+	}
+
+	/**
+	 * Answers with assets for the requested component, or with an empty page if the
+	 * credentials belong to some other caller.
+	 */
+	private Response page(Request request) {
+		String name = request.url().queryParameter("name");
+		String component = name.substring(name.indexOf('-') + 1);
+		String token = request.url().queryParameter(NexusSearch.CONTINUATION_TOKEN);
+		int page = token == null ? 1 : Integer.parseInt(token);
+
+		String items = "";
+		if (Credentials.basic("user-" + component, "secret").equals(request.header("Authorization"))) {
+			items = item(name, "1." + component + ".0-" + page) + "," + item(name, "branch-" + component + "_" + page);
+		}
+		return respond(request, items, page < PAGES ? String.valueOf(page + 1) : null);
+	}
+
+}
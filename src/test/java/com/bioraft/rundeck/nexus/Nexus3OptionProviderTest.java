@@ -22,8 +22,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -43,6 +45,7 @@ import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Timeout;
 
 /**
  * Tests for Nexus3OptionProvider.
@@ -68,6 +71,8 @@ public class Nexus3OptionProviderTest {
 						{ "endpointPath", "/service/rest/v1/search/assets" }, { "repository", "docker" },
 						{ "componentName", "*" }, { "componentVersion", "*" } })
 				.collect(Collectors.toMap(data -> data[0], data -> data[1]));
+		// Each search sets its request timeout on the call.
+		when(call.timeout()).thenReturn(new Timeout());
 	}
 
 	@Test
@@ -353,6 +358,90 @@ public class Nexus3OptionProviderTest {
 		assertEquals("COMP_NAME:1.2.3-11", options.get(5).getName());
 	}
 
+	@Test
+	public void streamsThousandsOfPagesLazily() throws IOException {
+		final int pages = 5000;
+		AtomicInteger page = new AtomicInteger();
+		when(client.newCall(any())).thenReturn(call);
+		when(call.execute()).thenAnswer(invocation -> {
+			int current = page.incrementAndGet();
+			String token = current < pages ? ", \"continuationToken\" : \"page-" + current + "\"" : "";
+			return response("{\"items\":[" + item("branch-" + current + "_1") + "," + item("branch-" + current + "_2")
+					+ "]" + token + "}");
+		});
+
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+		Iterator<String> assets = subject.assetPaths(configuration);
+		assertEquals(0, page.get());
+		assertTrue(assets.hasNext());
+		assertEquals("v2/COMP_NAME/manifests/branch-1_1", assets.next());
+		assertEquals(1, page.get());
+
+		int remaining = 0;
+		while (assets.hasNext()) {
+			assets.next();
+			remaining++;
+		}
+		assertEquals(2 * pages - 1, remaining);
+		assertEquals(pages, page.get());
+
+		page.set(0);
+		assertEquals(2 * pages, subject.assetStream(configuration).count());
+	}
+
+	@Test
+	public void aggregatesThousandsOfPagesWithoutRecursion() throws IOException {
+		final int pages = 5000;
+		AtomicInteger page = new AtomicInteger();
+		when(client.newCall(any())).thenReturn(call);
+		when(call.execute()).thenAnswer(invocation -> {
+			int current = page.incrementAndGet();
+			String token = current < pages ? ", \"continuationToken\" : \"page-" + current + "\"" : "";
+			return response("{\"items\":[" + item("sprint-11_" + current) + "]" + token + "}");
+		});
+
+		Nexus3OptionProvider provider = new Nexus3OptionProvider(client);
+		List<OptionValue> options = provider.getOptionValues(configuration);
+
+		verify(call, times(pages)).execute();
+		assertEquals(1, options.size());
+		assertEquals("COMP_NAME:sprint-11_" + pages, options.get(0).getName());
+	}
+
+	@Test
+	public void stopsAtNullContinuationToken() throws IOException {
+		when(client.newCall(any())).thenReturn(call);
+		String json = "{\"items\":[" + item("sprint-11_4") + "], \"continuationToken\" : null}";
+		when(call.execute()).thenReturn(response(json));
+
+		Nexus3OptionProvider provider = new Nexus3OptionProvider(client);
+		List<OptionValue> options = provider.getOptionValues(configuration);
+
+		verify(call, times(1)).execute();
+		assertEquals(1, options.size());
+	}
+
+	@Test
+	public void reusesParsedAssetsOnRepeatedLookup() throws IOException {
+		when(client.newCall(any())).thenReturn(call);
+		String json = "{\"items\":[" + item("sprint-11_3") + "," + item("sprint-11_4") + "," + item("v1.2.3_4") + "]}";
+		when(call.execute()).thenReturn(response(json), response(json));
+
+		BranchOrVersionCache cache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		OptionProviderImpl subject = new OptionProviderImpl(client, cache);
+		List<OptionValue> cold = subject.getOptionValues(configuration);
+		assertEquals(0, cache.getHits());
+		assertEquals(3, cache.getMisses());
+
+		List<OptionValue> warm = subject.getOptionValues(configuration);
+		assertEquals(3, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(cold.size(), warm.size());
+		for (int i = 0; i < cold.size(); i++) {
+			assertEquals(cold.get(i).getName(), warm.get(i).getName());
+		}
+	}
+
 	private Response response(String json) {
 		Request request = new Request.Builder().url("https://example.nexus.com").build();
 		ResponseBody body = ResponseBody.create(MediaType.parse("text/json"), json);
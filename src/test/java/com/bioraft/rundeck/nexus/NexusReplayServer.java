@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a corpus recorded by {@link NexusRecorder} as if it were Nexus, so that
+ * lookups can be tested and measured offline against real repositories.
+ *
+ * <p>Requests are matched on path and query, including the continuation token,
+ * so each page is served with the tokens Nexus originally returned. If the same
+ * request was recorded more than once, the recordings are served in order and
+ * the last one is repeated. Optionally, each response is delayed by as long as
+ * the original request took. Requests that were never recorded get a 404.
+ *
+ * @since 2026-10-18
+ */
+class NexusReplayServer implements Closeable {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final Map<String, Deque<JsonNode>> pages = new HashMap<>();
+
+	private final boolean originalTiming;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	/**
+	 * Loads a corpus and starts serving it on a free port of the loopback address.
+	 *
+	 * @param directory The directory the pages were recorded to.
+	 * @param originalTiming Whether to delay each response as long as it originally took.
+	 * @throws IOException If the corpus cannot be read or the server cannot start.
+	 */
+	NexusReplayServer(Path directory, boolean originalTiming) throws IOException {
+		this.originalTiming = originalTiming;
+		for (Path file : recordedFiles(directory)) {
+			JsonNode page = OBJECT_MAPPER.readTree(Files.readAllBytes(file));
+			Map<String, String> query = new TreeMap<>();
+			page.path("query").fields().forEachRemaining(field -> query.put(field.getKey(), field.getValue().asText()));
+			pages.computeIfAbsent(key(page.path("path").asText(), query), k -> new ArrayDeque<>()).add(page);
+		}
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * The value to configure as endpointHost, with the port the server listens on.
+	 */
+	String getEndpointHost() {
+		InetSocketAddress address = server.getAddress();
+		return address.getAddress().getHostAddress() + ":" + address.getPort();
+	}
+
+	/**
+	 * Number of requests served so far, including those answered with a 404.
+	 */
+	int getRequests() {
+		return requests.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		JsonNode page = next(key(exchange.getRequestURI().getRawPath(), query(exchange.getRequestURI().getRawQuery())));
+		try {
+			if (page == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			if (originalTiming) {
+				try {
+					Thread.sleep(page.path("elapsedMillis").asLong());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			byte[] body = page.path("body").asText().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(page.path("status").asInt(200), body.length == 0 ? -1 : body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Takes the next recording of a request, keeping the last one for repeats.
+	 */
+	private synchronized JsonNode next(String key) {
+		Deque<JsonNode> recorded = pages.get(key);
+		if (recorded == null) {
+			return null;
+		}
+		return recorded.size() > 1 ? recorded.poll() : recorded.peek();
+	}
+
+	private static String key(String path, Map<String, String> query) {
+		return path + "?" + query;
+	}
+
+	private static Map<String, String> query(String rawQuery) {
+		Map<String, String> query = new TreeMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return query;
+		}
+		for (String parameter : rawQuery.split("&")) {
+			int equals = parameter.indexOf('=');
+			String name = equals < 0 ? parameter : parameter.substring(0, equals);
+			String value = equals < 0 ? "" : parameter.substring(equals + 1);
+			query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return query;
+	}
+
+	private static List<Path> recordedFiles(Path directory) throws IOException {
+		List<Path> files = new ArrayList<>();
+		String glob = NexusRecorder.FILE_PREFIX + "*" + NexusRecorder.FILE_SUFFIX;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+			stream.forEach(files::add);
+		}
+		// Zero padded numbers sort in recording order.
+		Collections.sort(files);
+		return files;
+	}
+}
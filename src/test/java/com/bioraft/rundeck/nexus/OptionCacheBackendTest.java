@@ -0,0 +1,339 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.item;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests for the option cache backends, using several providers that share a
+ * temporary directory to stand in for the nodes of a cluster.
+ *
+ * @since 2026-10-18
+ */
+public class OptionCacheBackendTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private Map<String, String> configuration;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("cache");
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "cached.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "*");
+		configuration.put("cacheTtl", "60");
+	}
+
+	@Test
+	public void storesAndReadsEntries() {
+		SharedDirectoryCacheBackend backend = new SharedDirectoryCacheBackend(directory.toPath());
+		List<String> values = Arrays.asList("COMP_NAME:1.2.3-11", "COMP_NAME:sprint_11-13");
+
+		backend.put("key", values, 60000);
+		OptionCacheBackend.Entry entry = backend.get("key");
+
+		assertEquals(values, entry.getValues());
+		assertEquals(60000, entry.getExpiresAt() - entry.getStoredAt());
+		assertFalse(entry.isExpired());
+		assertArrayEquals(new String[] { backend.entryFile("key").getFileName().toString() }, directory.list());
+	}
+
+	@Test
+	public void ignoresMissingAndCorruptEntries() throws IOException {
+		SharedDirectoryCacheBackend backend = new SharedDirectoryCacheBackend(directory.toPath());
+		assertNull(backend.get("key"));
+
+		Files.write(backend.entryFile("key"), "{\"values\": [".getBytes());
+		assertNull(backend.get("key"));
+		Files.write(backend.entryFile("key"), "{\"key\": \"other\", \"values\": []}".getBytes());
+		assertNull(backend.get("key"));
+	}
+
+	@Test
+	public void keepsExpiredEntriesUntilInvalidated() {
+		SharedDirectoryCacheBackend backend = new SharedDirectoryCacheBackend(directory.toPath());
+		backend.put("key", Arrays.asList("a"), 0);
+
+		assertTrue(backend.get("key").isExpired());
+		backend.invalidate("key");
+		assertNull(backend.get("key"));
+	}
+
+	@Test
+	public void leaseIsExclusiveUntilReleasedOrAbandoned() throws IOException {
+		SharedDirectoryCacheBackend node1 = new SharedDirectoryCacheBackend(directory.toPath());
+		SharedDirectoryCacheBackend node2 = new SharedDirectoryCacheBackend(directory.toPath());
+
+		String lease = node1.tryLease("key", 60000);
+		assertNotNull(lease);
+		assertNull(node2.tryLease("key", 60000));
+		node1.releaseLease("key", lease);
+		assertNotNull(node2.tryLease("key", 60000));
+
+		FileTime longAgo = FileTime.fromMillis(System.currentTimeMillis() - 120000);
+		Files.setLastModifiedTime(node2.leaseFile("key"), longAgo);
+		assertNotNull(node1.tryLease("key", 60000));
+		assertNull(node2.tryLease("key", 60000));
+	}
+
+	@Test
+	public void releaseKeepsLeaseTakenOverByAnotherNode() throws IOException {
+		SharedDirectoryCacheBackend node1 = new SharedDirectoryCacheBackend(directory.toPath());
+		SharedDirectoryCacheBackend node2 = new SharedDirectoryCacheBackend(directory.toPath());
+		String stalled = node1.tryLease("key", 60000);
+		FileTime longAgo = FileTime.fromMillis(System.currentTimeMillis() - 120000);
+		Files.setLastModifiedTime(node1.leaseFile("key"), longAgo);
+		String lease = node2.tryLease("key", 60000);
+		assertNotNull(lease);
+
+		// The node that stalled finishes late and releases what it no longer holds.
+		node1.releaseLease("key", stalled);
+		assertNull(node1.tryLease("key", 60000));
+		assertArrayEquals(new String[] { node2.leaseFile("key").getFileName().toString() }, directory.list());
+
+		node2.releaseLease("key", lease);
+		assertNotNull(node1.tryLease("key", 60000));
+	}
+
+	@Test
+	public void entriesDoNotHoldTheKey() throws IOException {
+		SharedDirectoryCacheBackend backend = new SharedDirectoryCacheBackend(directory.toPath());
+		String key = new NexusSearch(configuration).cacheKey() + "deploy";
+		backend.put(key, Arrays.asList("a"), 60000);
+
+		String json = new String(Files.readAllBytes(backend.entryFile(key)), StandardCharsets.UTF_8);
+		assertFalse(json, json.contains("deploy"));
+		assertFalse(json, json.contains("cached.example.com"));
+		assertEquals(Arrays.asList("a"), backend.get(key).getValues());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void requiresExistingDirectory() {
+		new SharedDirectoryCacheBackend(directory.toPath().resolve("missing"));
+	}
+
+	@Test
+	public void ignoresCacheDirectoryInConfiguration() throws IOException {
+		File elsewhere = folder.newFolder("elsewhere");
+		configuration.put("cacheDirectory", elsewhere.getPath());
+		OkHttpClient client = client(chain -> page(chain.request()));
+		InMemoryCacheBackend.shared().clear();
+
+		new OptionProviderImpl(client).getOptionValues(configuration);
+
+		assertEquals(0, elsewhere.list().length);
+		assertNotNull(InMemoryCacheBackend.shared().get(new NexusSearch(configuration).cacheKey()));
+		InMemoryCacheBackend.shared().clear();
+	}
+
+	@Test
+	public void inMemoryLeaseIsExclusive() {
+		InMemoryCacheBackend backend = new InMemoryCacheBackend();
+		String lease = backend.tryLease("key", 60000);
+		assertNotNull(lease);
+		assertNull(backend.tryLease("key", 60000));
+		backend.releaseLease("key", lease);
+		assertNotNull(backend.tryLease("key", 0));
+		assertNotNull(backend.tryLease("key", 60000));
+	}
+
+	@Test
+	public void inMemoryReleaseKeepsLeaseTakenOverByAnotherLookup() {
+		InMemoryCacheBackend backend = new InMemoryCacheBackend();
+		String abandoned = backend.tryLease("key", 0);
+		String lease = backend.tryLease("key", 60000);
+		assertNotNull(lease);
+
+		backend.releaseLease("key", abandoned);
+		assertNull(backend.tryLease("key", 60000));
+		backend.releaseLease("key", lease);
+		assertNotNull(backend.tryLease("key", 60000));
+	}
+
+	@Test
+	public void inMemoryDropsLongExpiredEntries() {
+		InMemoryCacheBackend backend = new InMemoryCacheBackend();
+		backend.put("expired", Arrays.asList("a"), 0);
+		backend.put("fresh", Arrays.asList("b"), 60000);
+		assertNull(backend.get("expired"));
+		assertNotNull(backend.get("fresh"));
+
+		backend.purgeExpired(System.currentTimeMillis() + 90000);
+		assertNotNull(backend.get("fresh"));
+		backend.purgeExpired(System.currentTimeMillis() + 120000);
+		assertNull(backend.get("fresh"));
+	}
+
+	@Test
+	public void inMemoryBoundsEntries() {
+		InMemoryCacheBackend backend = new InMemoryCacheBackend();
+		for (int i = 0; i <= InMemoryCacheBackend.MAX_ENTRIES; i++) {
+			backend.put("key" + i, Arrays.asList("a"), 60000 + i);
+		}
+
+		assertEquals(InMemoryCacheBackend.MAX_ENTRIES, backend.size());
+		assertNull(backend.get("key0"));
+		assertNotNull(backend.get("key" + InMemoryCacheBackend.MAX_ENTRIES));
+	}
+
+	@Test
+	public void nodesShareCachedList() {
+		AtomicInteger requests1 = new AtomicInteger();
+		AtomicInteger requests2 = new AtomicInteger();
+		AtomicInteger requests3 = new AtomicInteger();
+
+		List<String> first = names(node(requests1).getOptionValues(configuration));
+		List<String> second = names(node(requests2).getOptionValues(configuration));
+		List<String> third = names(node(requests3).getOptionValues(configuration));
+
+		assertEquals(1, requests1.get());
+		assertEquals(0, requests2.get());
+		assertEquals(0, requests3.get());
+		assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:sprint_11-13", "COMP_NAME:1.2.3-4"), first);
+		assertEquals(first, second);
+		assertEquals(first, third);
+	}
+
+	@Test
+	public void credentialsDoNotShareCachedList() {
+		configuration.put("user", "deploy");
+		configuration.put("password", "right");
+		String key = new NexusSearch(configuration).cacheKey();
+		AtomicInteger requests1 = new AtomicInteger();
+		node(requests1).getOptionValues(configuration);
+
+		configuration.put("password", "wrong");
+		AtomicInteger requests2 = new AtomicInteger();
+		node(requests2).getOptionValues(configuration);
+
+		assertEquals(1, requests1.get());
+		assertEquals(1, requests2.get());
+		assertNotEquals(key, new NexusSearch(configuration).cacheKey());
+		assertFalse(key, key.contains("deploy"));
+		assertFalse(key, key.contains("right"));
+	}
+
+	@Test
+	public void servesExpiredListWhileAnotherNodeRefreshes() {
+		String key = new NexusSearch(configuration).cacheKey();
+		SharedDirectoryCacheBackend otherNode = new SharedDirectoryCacheBackend(directory.toPath());
+		otherNode.put(key, Arrays.asList("COMP_NAME:1.0.0-1"), 0);
+		assertNotNull(otherNode.tryLease(key, 60000));
+
+		AtomicInteger requests = new AtomicInteger();
+		List<String> names = names(node(requests).getOptionValues(configuration));
+
+		assertEquals(0, requests.get());
+		assertEquals(Arrays.asList("COMP_NAME:1.0.0-1"), names);
+	}
+
+	@Test
+	public void crawlsWhenAnotherNodeRefreshesAndNothingIsCached() {
+		String key = new NexusSearch(configuration).cacheKey();
+		SharedDirectoryCacheBackend otherNode = new SharedDirectoryCacheBackend(directory.toPath());
+		assertNotNull(otherNode.tryLease(key, 60000));
+
+		AtomicInteger requests = new AtomicInteger();
+		List<String> names = names(node(requests).getOptionValues(configuration));
+
+		assertEquals(1, requests.get());
+		assertEquals(3, names.size());
+		// The node holding the lease is responsible for storing the list.
+		assertNull(otherNode.get(key));
+	}
+
+	@Test
+	public void refreshesExpiredList() {
+		String key = new NexusSearch(configuration).cacheKey();
+		SharedDirectoryCacheBackend backend = new SharedDirectoryCacheBackend(directory.toPath());
+		backend.put(key, Arrays.asList("COMP_NAME:1.0.0-1"), 0);
+
+		AtomicInteger requests = new AtomicInteger();
+		List<String> names = names(node(requests).getOptionValues(configuration));
+
+		assertEquals(1, requests.get());
+		assertEquals(names, backend.get(key).getValues());
+		assertFalse(backend.get(key).isExpired());
+		assertNotNull(backend.tryLease(key, 60000));
+	}
+
+	@Test
+	public void doesNotCacheCrawlEndedEarly() throws Exception {
+		String key = new NexusSearch(configuration).cacheKey();
+		SharedDirectoryCacheBackend backend = new SharedDirectoryCacheBackend(directory.toPath());
+		OkHttpClient client = client(chain -> {
+			if (chain.request().url().queryParameter(NexusSearch.CONTINUATION_TOKEN) != null) {
+				throw new IOException("connection reset");
+			}
+			return respond(chain.request(), item("1.2.3-4"), "2");
+		});
+		OptionProviderImpl node = new OptionProviderImpl(client,
+				new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT), backend);
+
+		assertEquals(2, node.getOptionValues(configuration).size());
+		assertNull(backend.get(key));
+		assertEquals(2, node.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS).size());
+		assertNull(backend.get(key));
+	}
+
+	/**
+	 * Builds a provider with its own client, counting the searches it sends.
+	 */
+	private OptionProviderImpl node(AtomicInteger requests) {
+		OkHttpClient client = client(chain -> {
+			requests.incrementAndGet();
+			return page(chain.request());
+		});
+		return new OptionProviderImpl(client, new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT),
+				new SharedDirectoryCacheBackend(directory.toPath()));
+	}
+
+	private Response page(Request request) {
+		return respond(request, item("sprint_11-13") + "," + item("sprint_11-4") + "," + item("1.2.3-4"), null);
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.item;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dtolabs.rundeck.plugins.option.OptionValue;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests for OptionProviderImpl.getOptionValuesAsync against a local stand-in for
+ * Nexus that answers from an OkHttp interceptor.
+ *
+ * @since 2026-10-18
+ */
+public class OptionProviderImplAsyncTest {
+
+	private Map<String, String> configuration;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "async.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "*");
+	}
+
+	@Test
+	public void matchesSynchronousResult() throws Exception {
+		OkHttpClient client = client(chain -> page(chain.request(), 3, this::tags));
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+
+		List<OptionValue> async = subject.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS);
+		assertEquals(3, requests.get());
+		List<OptionValue> sync = subject.getOptionValues(configuration);
+		assertEquals(6, requests.get());
+
+		assertEquals(sync.size(), async.size());
+		for (int i = 0; i < sync.size(); i++) {
+			assertEquals(sync.get(i).getName(), async.get(i).getName());
+		}
+		assertEquals("COMP_NAME:1.2.3-11", async.get(0).getName());
+	}
+
+	@Test
+	public void chainsThousandsOfPages() throws Exception {
+		final int pages = 2000;
+		OkHttpClient client = client(chain -> page(chain.request(), pages, page -> item("sprint-11_" + page)));
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+
+		List<OptionValue> options = subject.getOptionValuesAsync(configuration).get(60, TimeUnit.SECONDS);
+
+		assertEquals(pages, requests.get());
+		assertEquals(1, options.size());
+		assertEquals("COMP_NAME:sprint-11_" + pages, options.get(0).getName());
+	}
+
+	@Test
+	public void cancelStopsCrawl() throws Exception {
+		CountDownLatch secondPageRequested = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		OkHttpClient client = client(chain -> {
+			if (requests.get() == 1) {
+				secondPageRequested.countDown();
+				await(release);
+			}
+			return page(chain.request(), 10, this::tags);
+		});
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+
+		CompletableFuture<List<OptionValue>> future = subject.getOptionValuesAsync(configuration);
+		assertTrue(secondPageRequested.await(10, TimeUnit.SECONDS));
+		assertTrue(future.cancel(true));
+		release.countDown();
+
+		Thread.sleep(200);
+		assertTrue(future.isCancelled());
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void failsWhenCrawlTimesOut() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		OkHttpClient client = client(chain -> {
+			await(release);
+			return page(chain.request(), 1, this::tags);
+		});
+		configuration.put("crawlTimeout", "1");
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+
+		try {
+			subject.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void endsCrawlOnFailedPage() throws Exception {
+		OkHttpClient client = client(chain -> {
+			if (requests.get() == 1) {
+				requests.incrementAndGet();
+				throw new IOException("connection reset");
+			}
+			return page(chain.request(), 3, this::tags);
+		});
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+
+		List<OptionValue> options = subject.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS);
+
+		assertEquals(2, requests.get());
+		assertEquals(3, options.size());
+		assertEquals("COMP_NAME:1.2.3-4", options.get(0).getName());
+	}
+
+	@Test
+	public void syncLookupGivesUpOnUnansweredPage() {
+		OkHttpClient client = client(chain -> {
+			if (requests.get() == 1) {
+				requests.incrementAndGet();
+				// Never answer; only the call timeout ends the wait.
+				for (int i = 0; i < 1000 && !chain.call().isCanceled(); i++) {
+					FakeNexus.delay(10);
+				}
+				throw new IOException("Canceled");
+			}
+			return page(chain.request(), 3, this::tags);
+		});
+		configuration.put("requestTimeout", "1");
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+
+		long started = System.nanoTime();
+		List<OptionValue> options = subject.getOptionValues(configuration);
+
+		assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 5);
+		assertEquals(2, requests.get());
+		assertEquals(3, options.size());
+	}
+
+	@Test
+	public void failsOnMalformedEndpointWithoutLeakingPermit() throws Exception {
+		configuration.put("endpointHost", "not a host");
+		OptionProviderImpl subject = new OptionProviderImpl(client(chain -> page(chain.request(), 1, this::tags)));
+
+		try {
+			subject.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof NullPointerException);
+		}
+		HostBulkhead bulkhead = new NexusSearch(configuration).bulkhead();
+		assertEquals(0, bulkhead.getInFlight());
+		assertEquals(0, requests.get());
+		bulkhead.acquire(100).release();
+	}
+
+	@Test
+	public void reportsMissingHostImmediately() throws Exception {
+		configuration.remove("endpointHost");
+		OptionProviderImpl subject = new OptionProviderImpl(client(chain -> page(chain.request(), 1, this::tags)));
+
+		CompletableFuture<List<OptionValue>> future = subject.getOptionValuesAsync(configuration);
+
+		assertTrue(future.isDone());
+		assertEquals(1, future.get().size());
+		assertEquals(0, requests.get());
+	}
+
+	/**
+	 * Answers a search request with the page selected by its continuation token,
+	 * which is simply the number of the next page.
+	 */
+	private Response page(Request request, int pages, IntFunction<String> content) {
+		String token = request.url().queryParameter(NexusSearch.CONTINUATION_TOKEN);
+		int page = token == null ? 1 : Integer.parseInt(token);
+		requests.incrementAndGet();
+		return respond(request, content.apply(page), page < pages ? String.valueOf(page + 1) : null);
+	}
+
+	private String tags(int page) {
+		switch (page) {
+		case 1:
+			return item("sprint_11-13") + "," + item("sprint_11-4") + "," + item("1.2.3-4");
+		case 2:
+			return item("1.2.2-21") + "," + item("1.2.3-11");
+		default:
+			return item("ISSUE-234-one-issue-2") + "," + item("1.2.2-2");
+		}
+	}
+
+	private static void await(CountDownLatch latch) throws IOException {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+}
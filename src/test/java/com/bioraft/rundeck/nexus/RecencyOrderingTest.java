@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.offsetPage;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests for ordering assets by their lastModified or blobCreated time.
+ *
+ * @since 2026-10-18
+ */
+public class RecencyOrderingTest {
+
+	/**
+	 * Tag, lastModified and blobCreated of each asset, in the order Nexus returns
+	 * them. Commit hashes give the feature branch no meaningful version order.
+	 */
+	private static final String[][] ASSETS = {
+			{ "feature-x_def456", "2026-10-18T10:00:00.000+0000", "2026-10-18T10:00:00.000+0000" },
+			{ "1.2.3-11", "2026-10-18T08:00:00.000+0000", "2026-10-18T08:00:00.000+0000" },
+			{ "feature-x_abc123", "2026-10-18T11:00:00.000+0000", "2026-10-18T09:30:00.000+0000" },
+			{ "sprint_11-13", "2026-10-18T12:00:00.000+0000", "2026-10-18T12:00:00.000+0000" },
+			{ "1.2.3-4", "2026-10-18T09:00:00.000+0000", "2026-10-18T09:00:00.000+0000" },
+			{ "2.0.0-1", "2026-10-18T07:00:00.000+0000", "2026-10-18T07:00:00.000+0000" },
+			{ "sprint_11-4", null, null } };
+
+	private static final int PAGE_SIZE = 3;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private Map<String, String> configuration;
+
+	private BranchOrVersionCache parseCache;
+
+	private OptionProviderImpl subject;
+
+	@Before
+	public void setUp() {
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "recency.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "COMP_NAME");
+		configuration.put("orderBy", "lastModified");
+
+		OkHttpClient client = client(chain -> page(chain.request()));
+		parseCache = new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT);
+		subject = new OptionProviderImpl(client, parseCache);
+	}
+
+	@Test
+	public void keepsMostRecentlyModifiedBuild() {
+		assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:feature-x_abc123", "COMP_NAME:sprint_11-13",
+				"COMP_NAME:2.0.0-1", "COMP_NAME:1.2.3-4"), names(subject.getOptionValues(configuration)));
+		assertEquals(3, requests.get());
+	}
+
+	@Test
+	public void canOrderByBlobCreated() {
+		configuration.put("orderBy", "blobCreated");
+
+		assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:feature-x_def456", "COMP_NAME:sprint_11-13",
+				"COMP_NAME:2.0.0-1", "COMP_NAME:1.2.3-4"), names(subject.getOptionValues(configuration)));
+	}
+
+	@Test
+	public void canKeepOrderingReleasesByVersion() {
+		configuration.put("semverReleases", "true");
+
+		assertEquals(Arrays.asList("COMP_NAME:2.0.0-1", "COMP_NAME:feature-x_abc123", "COMP_NAME:sprint_11-13",
+				"COMP_NAME:1.2.3-11", "COMP_NAME:2.0.0-1"), names(subject.getOptionValues(configuration)));
+	}
+
+	@Test
+	public void asyncMatchesSync() throws Exception {
+		List<String> sync = names(subject.getOptionValues(configuration));
+
+		assertEquals(sync, names(subject.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS)));
+	}
+
+	@Test
+	public void ignoresIndexAndShards() {
+		configuration.put("indexTtl", "60");
+		configuration.put("shardBy", "version");
+		configuration.put("componentVersion", "*");
+
+		assertEquals(5, subject.getOptionValues(configuration).size());
+		assertEquals(3, requests.get());
+	}
+
+	@Test
+	public void doesNotChangeCachedAssets() {
+		String path = "v2/COMP_NAME/manifests/feature-x_abc123";
+		BranchOrVersion cached = parseCache.parse(path, null);
+
+		subject.getOptionValues(configuration);
+
+		assertSame(cached, parseCache.parse(path, null));
+		assertEquals(BranchOrVersion.UNKNOWN_RECENCY, cached.getRecency());
+		assertSame(cached, cached.withRecency(BranchOrVersion.UNKNOWN_RECENCY));
+		BranchOrVersion timed = cached.withRecency(1000L);
+		assertEquals(1000L, timed.getRecency());
+		assertEquals(cached.toString(), timed.toString());
+		assertEquals(0, cached.compareTo(timed));
+	}
+
+	@Test
+	public void parsesNexusTimestamps() {
+		long expected = 1792332131374L;
+		assertEquals(expected, NexusSearch.epochMillis("2026-10-18T14:02:11.374+0000"));
+		assertEquals(expected, NexusSearch.epochMillis("2026-10-18T14:02:11.374+00:00"));
+		assertEquals(expected, NexusSearch.epochMillis("2026-10-18T14:02:11.374Z"));
+		assertEquals(expected, NexusSearch.epochMillis("2026-10-18T10:02:11.374-0400"));
+		assertEquals(BranchOrVersion.UNKNOWN_RECENCY, NexusSearch.epochMillis(null));
+		assertEquals(BranchOrVersion.UNKNOWN_RECENCY, NexusSearch.epochMillis(""));
+		assertEquals(BranchOrVersion.UNKNOWN_RECENCY, NexusSearch.epochMillis("yesterday"));
+	}
+
+	@Test
+	public void ordersAssetsWithoutTimestampByTag() {
+		AssetAggregator aggregator = new AssetAggregator(AssetAggregator.BY_RECENCY, AssetAggregator.BY_RECENCY);
+		aggregator.add(new BranchOrVersion("v2/COMP_NAME/manifests/sprint_9-1"));
+		aggregator.add(new BranchOrVersion("v2/COMP_NAME/manifests/sprint_10-1"));
+		aggregator.add(new BranchOrVersion("v2/COMP_NAME/manifests/sprint_8-1").withRecency(1790000000000L));
+
+		// As text, "sprint_10" comes before "sprint_9", unlike in version order.
+		assertEquals(Arrays.asList("COMP_NAME:sprint_10-1", "COMP_NAME:sprint_9-1", "COMP_NAME:sprint_8-1"),
+				names(aggregator.toOptionValues()));
+	}
+
+	/**
+	 * Answers with the page of assets that starts at the offset given as
+	 * continuation token.
+	 */
+	private Response page(Request request) {
+		requests.incrementAndGet();
+		List<String> items = new ArrayList<>();
+		for (String[] asset : ASSETS) {
+			items.add(item(asset));
+		}
+		return offsetPage(request, items, PAGE_SIZE);
+	}
+
+	private String item(String[] asset) {
+		StringBuilder item = new StringBuilder("{\"path\": \"v2/COMP_NAME/manifests/").append(asset[0]).append("\"");
+		if (asset[1] != null) {
+			item.append(", \"lastModified\": \"").append(asset[1]).append("\"");
+			item.append(", \"blobCreated\": \"").append(asset[2]).append("\"");
+		}
+		return item.append("}").toString();
+	}
+}
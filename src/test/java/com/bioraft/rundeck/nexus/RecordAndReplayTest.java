@@ -0,0 +1,249 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.delay;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests for recording search pages with NexusRecorder and serving them again
+ * with NexusReplayServer.
+ *
+ * @since 2026-10-18
+ */
+public class RecordAndReplayTest {
+
+	private static final String PASSWORD = "hunter2";
+
+	private static final List<String> TAGS = Arrays.asList("sprint_11-13", "1.2.3-4", "sprint_11-4", "v1.2.3-4",
+			"1.2.2-21", "ISSUE-234-one-issue-2", "1.2.3-11", "2.0.0-1", "1.2.2-2", "sprint_12-4");
+
+	private static final int PAGE_SIZE = 3;
+
+	private static final long LATENCY_MILLIS = 30;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Offsets by the opaque continuation tokens handed out for them.
+	 */
+	private final Map<String, Integer> tokens = new ConcurrentHashMap<>();
+
+	private File directory;
+
+	private Map<String, String> configuration;
+
+	private OkHttpClient client;
+
+	private OptionProviderImpl nexus;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("corpus");
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "nexus.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("user", "deploy");
+		configuration.put("password", PASSWORD);
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "COMP_NAME");
+
+		client = client(chain -> page(chain.request()));
+		nexus = new OptionProviderImpl(client, new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT));
+	}
+
+	@Test
+	public void recordsEachPageWithoutCredentials() throws IOException {
+		List<String> names = record();
+
+		assertEquals(8, names.size());
+		String[] files = directory.list();
+		Arrays.sort(files);
+		assertEquals(pages(), files.length);
+		assertEquals("page-00000001.json", files[0]);
+		for (String file : files) {
+			String json = new String(Files.readAllBytes(directory.toPath().resolve(file)), StandardCharsets.UTF_8);
+			assertFalse(json, json.contains(PASSWORD));
+			assertTrue(json, json.contains("https://nexus.example.com/repository/docker/"));
+		}
+	}
+
+	@Test
+	public void recordingDoesNotChangeResults() {
+		List<String> expected = names(nexus.getOptionValues(configuration));
+
+		assertEquals(expected, record());
+	}
+
+	@Test
+	public void recordsOnlyWhenConstructedToRecord() {
+		configuration.put("recordDirectory", directory.getPath());
+		nexus.getOptionValues(configuration);
+
+		assertEquals(0, directory.list().length);
+	}
+
+	@Test
+	public void requiresExistingRecordDirectory() throws IOException {
+		File file = folder.newFile("page.json");
+		for (File notDirectory : new File[] { file, new File(directory, "missing") }) {
+			try {
+				new OptionProviderImpl(client, null, null, notDirectory.toPath());
+				fail("Expected IllegalArgumentException for " + notDirectory);
+			} catch (IllegalArgumentException e) {
+				assertFalse(new File(directory, "missing").exists());
+			}
+		}
+	}
+
+	@Test
+	public void skipsPagesOverLimit() {
+		List<String> expected = names(nexus.getOptionValues(configuration));
+		// Pages of three items with download URLs are over 400 bytes, the last one about 150.
+		OkHttpClient limited = new OkHttpClient.Builder().addInterceptor(new NexusRecorder(directory.toPath(), 200))
+				.addInterceptor(chain -> page(chain.request())).build();
+
+		assertEquals(expected, names(new OptionProviderImpl(limited).getOptionValues(configuration)));
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void continuesNumberingAfterEarlierRecording() {
+		record();
+		// A recorder added to a client directly, as after a restart.
+		OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new NexusRecorder(directory.toPath()))
+				.addInterceptor(chain -> page(chain.request())).build();
+		new OptionProviderImpl(client).getOptionValues(configuration);
+
+		assertEquals(2 * pages(), directory.list().length);
+		assertTrue(Files.exists(NexusRecorder.file(directory.toPath(), 2 * pages())));
+	}
+
+	@Test
+	public void replaysRecordedPages() throws Exception {
+		List<String> expected = record();
+
+		try (NexusReplayServer server = new NexusReplayServer(directory.toPath(), false)) {
+			OptionProviderImpl replay = replay(server);
+
+			assertEquals(expected, names(replay.getOptionValues(configuration)));
+			assertEquals(expected, names(replay.getOptionValuesAsync(configuration).get(10, TimeUnit.SECONDS)));
+			assertEquals(2 * pages(), server.getRequests());
+		}
+	}
+
+	@Test
+	public void replaysOriginalTiming() throws Exception {
+		record();
+
+		try (NexusReplayServer server = new NexusReplayServer(directory.toPath(), true)) {
+			OptionProviderImpl replay = replay(server);
+			long start = System.nanoTime();
+			replay.getOptionValues(configuration);
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			assertTrue(elapsedMillis + "ms", elapsedMillis >= pages() * LATENCY_MILLIS);
+		}
+	}
+
+	@Test
+	public void answersUnrecordedSearchesWithNotFound() throws Exception {
+		record();
+
+		try (NexusReplayServer server = new NexusReplayServer(directory.toPath(), false)) {
+			configuration.put("componentName", "OTHER");
+
+			assertTrue(replay(server).getOptionValues(configuration).isEmpty());
+			assertEquals(1, server.getRequests());
+		}
+	}
+
+	/**
+	 * Records a lookup against the stand-in for Nexus.
+	 *
+	 * @return The names looked up.
+	 */
+	private List<String> record() {
+		OptionProviderImpl recording = new OptionProviderImpl(client,
+				new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT), null, directory.toPath());
+		return names(recording.getOptionValues(configuration));
+	}
+
+	/**
+	 * Points the configuration at a replay server and returns a provider with a
+	 * plain client.
+	 */
+	private OptionProviderImpl replay(NexusReplayServer server) {
+		configuration.put("endpointScheme", "http");
+		configuration.put("endpointHost", server.getEndpointHost());
+		return new OptionProviderImpl(new OkHttpClient(),
+				new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT));
+	}
+
+	private int pages() {
+		return (TAGS.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+	}
+
+	/**
+	 * Answers like Nexus, with opaque continuation tokens and download URLs that
+	 * carry the credentials, after a short delay.
+	 */
+	private Response page(Request request) throws IOException {
+		delay(LATENCY_MILLIS);
+		assertNotNull(request.header("Authorization"));
+		String token = request.url().queryParameter(NexusSearch.CONTINUATION_TOKEN);
+		int offset = token == null ? 0 : tokens.get(token);
+		int end = Math.min(offset + PAGE_SIZE, TAGS.size());
+		StringBuilder items = new StringBuilder();
+		for (int i = offset; i < end; i++) {
+			String path = "v2/COMP_NAME/manifests/" + TAGS.get(i);
+			items.append(i > offset ? "," : "").append("{\"path\": \"").append(path)
+					.append("\", \"downloadUrl\": \"https://deploy:").append(PASSWORD)
+					.append("@nexus.example.com/repository/docker/").append(path).append("\"}");
+		}
+		String next = null;
+		if (end < TAGS.size()) {
+			next = String.format("%032x", end * 7919L);
+			tokens.put(next, end);
+		}
+		return respond(request, items.toString(), next);
+	}
+}
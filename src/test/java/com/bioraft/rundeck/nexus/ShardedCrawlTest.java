@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.delay;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.offsetPage;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tests for sharded crawls against a local stand-in for Nexus that adds a fixed
+ * latency to every page.
+ *
+ * @since 2026-10-18
+ */
+public class ShardedCrawlTest {
+
+	private static final int PAGE_SIZE = 10;
+
+	private static final long LATENCY_MILLIS = 25;
+
+	private static final int MAX_CONCURRENT = 8;
+
+	/**
+	 * One shard per leading character of the tags in the stand-in.
+	 */
+	private static final String VERSION_SHARDS = "0,1,2,3,4,5,6,7,8,9,f,I";
+
+	private final List<String> paths = new ArrayList<>();
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	/**
+	 * Whether versions are matched without regard to case, as some Nexus
+	 * versions do.
+	 */
+	private boolean caseInsensitive;
+
+	/**
+	 * Holds back every search of the 1* shard until released, if set.
+	 */
+	private volatile CountDownLatch stalled;
+
+	private Map<String, String> configuration;
+
+	private OkHttpClient client;
+
+	@Before
+	public void setUp() {
+		for (int major = 0; major < 10; major++) {
+			for (int minor = 0; minor < 4; minor++) {
+				for (int build = 1; build <= 5; build++) {
+					paths.add("v2/api/manifests/" + major + "." + minor + ".0-" + build);
+				}
+			}
+		}
+		for (int branch = 0; branch < 10; branch++) {
+			for (int build = 1; build <= 5; build++) {
+				paths.add("v2/api/manifests/feature-" + branch + "_" + build);
+				paths.add("v2/web/manifests/ISSUE-" + branch + "_" + build);
+			}
+		}
+
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "sharded.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker");
+		configuration.put("componentName", "*");
+		configuration.put("maxConcurrentRequests", String.valueOf(MAX_CONCURRENT));
+
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequestsPerHost(MAX_CONCURRENT);
+		client = new OkHttpClient.Builder().dispatcher(dispatcher).addInterceptor(chain -> page(chain.request()))
+				.build();
+	}
+
+	@Test
+	public void versionShardsMatchSingleCrawl() {
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+		List<String> single = names(subject.getOptionValues(configuration));
+		assertEquals(paths.size() / PAGE_SIZE, requests.get());
+		assertEquals(1, maxInFlight.get());
+
+		configuration.put("shardBy", "version");
+		configuration.put("shards", VERSION_SHARDS);
+		requests.set(0);
+		List<String> sharded = names(subject.getOptionValues(configuration));
+
+		assertEquals(single, sharded);
+		assertEquals(30, requests.get());
+		assertTrue("Shards never overlapped", maxInFlight.get() > 1);
+		assertTrue(maxInFlight.get() <= MAX_CONCURRENT);
+	}
+
+	@Test
+	public void asyncShardsMatchSingleCrawl() throws Exception {
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+		List<String> single = names(subject.getOptionValues(configuration));
+
+		configuration.put("shardBy", "version");
+		configuration.put("shards", VERSION_SHARDS);
+		List<String> sharded = names(subject.getOptionValuesAsync(configuration).get(30, TimeUnit.SECONDS));
+
+		assertEquals(single, sharded);
+	}
+
+	@Test
+	public void partialShardListIsCachedApart() {
+		List<String> single = names(new OptionProviderImpl(client).getOptionValues(configuration));
+		configuration.put("cacheTtl", "60");
+		configuration.put("indexTtl", "60");
+		String unshardedKey = new NexusSearch(configuration).cacheKey();
+		String unshardedIndex = new NexusSearch(configuration).indexKey();
+		OptionProviderImpl subject = new OptionProviderImpl(client,
+				new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT), new InMemoryCacheBackend());
+
+		configuration.put("shardBy", "version");
+		configuration.put("shards", "1,2");
+		List<String> partial = names(subject.getOptionValues(configuration));
+		assertNotEquals(unshardedKey, new NexusSearch(configuration).cacheKey());
+		assertNotEquals(unshardedIndex, new NexusSearch(configuration).indexKey());
+		assertTrue(partial.size() < single.size());
+
+		configuration.remove("shardBy");
+		configuration.remove("shards");
+		assertEquals(single, names(subject.getOptionValues(configuration)));
+	}
+
+	@Test
+	public void versionShardingIsOptIn() {
+		configuration.put("shardBy", "version");
+		assertFalse(new NexusSearch(configuration).isSharded());
+
+		requests.set(0);
+		new OptionProviderImpl(client).getOptionValues(configuration);
+		assertEquals(paths.size() / PAGE_SIZE, requests.get());
+	}
+
+	@Test
+	public void shardsMatchedWithoutRegardToCaseAreDeduplicated() {
+		caseInsensitive = true;
+		configuration.put("shardBy", "version");
+		configuration.put("shards", "f,F,i,I");
+		NexusSearch search = new NexusSearch(configuration);
+
+		List<String> merged = ShardedCrawl.paths(client, search.getShards()).join().toList();
+
+		assertEquals(paths.subList(200, 300).size(), merged.size());
+		assertEquals(new HashSet<>(paths.subList(200, 300)), new HashSet<>(merged));
+	}
+
+	@Test
+	public void stalledShardIsCutShortAndReported() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		stalled = release;
+		configuration.put("shardBy", "version");
+		configuration.put("shards", "0,1");
+		configuration.put("requestTimeout", "1");
+		NexusSearch search = new NexusSearch(configuration);
+
+		ShardedCrawl<ShardedCrawl.Paths> crawl = ShardedCrawl.paths(client, search.getShards());
+		long start = System.nanoTime();
+		try {
+			List<String> merged = crawl.join().toList();
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			assertEquals(paths.subList(0, 20), merged);
+			assertFalse(crawl.isComplete());
+			assertTrue(elapsedMillis + "ms", elapsedMillis < 5000);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void nameShardsMatchSingleCrawl() {
+		OptionProviderImpl subject = new OptionProviderImpl(client);
+		List<String> single = names(subject.getOptionValues(configuration));
+
+		configuration.put("shardBy", "name");
+		configuration.put("shards", "api, web");
+		requests.set(0);
+		List<String> sharded = names(subject.getOptionValues(configuration));
+
+		assertEquals(single, sharded);
+		assertEquals(30, requests.get());
+	}
+
+	@Test
+	public void overlappingShardsAreDeduplicated() throws Exception {
+		configuration.put("shardBy", "version");
+		configuration.put("shards", "1,1.2,1.*-5");
+		NexusSearch search = new NexusSearch(configuration);
+
+		List<String> merged = ShardedCrawl.paths(client, search.getShards()).start().get(30, TimeUnit.SECONDS)
+				.toList();
+
+		assertEquals(20, merged.size());
+		assertEquals(paths.subList(20, 40), merged);
+	}
+
+	@Test
+	public void equalAssetsResolveInShardOrder() {
+		// The v shard answers last, but is listed first.
+		OkHttpClient slowFirstShard = FakeNexus.client(chain -> {
+			String version = chain.request().url().queryParameter("version");
+			if ("v*".equals(version)) {
+				delay(200);
+				return FakeNexus.respond(chain.request(), FakeNexus.item("v1.2.3-4"), null);
+			}
+			return FakeNexus.respond(chain.request(), FakeNexus.item("1.2.3-4"), null);
+		});
+		configuration.put("shardBy", "version");
+		configuration.put("shards", "v,1");
+
+		List<String> sharded = names(new OptionProviderImpl(slowFirstShard).getOptionValues(configuration));
+
+		// The latest release is listed first, then each release.
+		assertEquals("COMP_NAME:v1.2.3-4", sharded.get(0));
+	}
+
+	@Test
+	public void shardingRequiresWildcardFilter() {
+		configuration.put("shardBy", "version");
+		configuration.put("componentVersion", "1.2.0-5");
+		assertFalse(new NexusSearch(configuration).isSharded());
+
+		configuration.put("shardBy", "name");
+		configuration.put("componentName", "api");
+		configuration.put("shards", "a");
+		assertFalse(new NexusSearch(configuration).isSharded());
+
+		configuration.put("componentName", "*");
+		assertTrue(new NexusSearch(configuration).isSharded());
+		configuration.remove("shards");
+		assertFalse(new NexusSearch(configuration).isSharded());
+	}
+
+	/**
+	 * Answers a search after a fixed delay with the page of matching paths that
+	 * starts at the offset given as continuation token.
+	 */
+	private Response page(Request request) throws IOException {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			delay(LATENCY_MILLIS);
+			if (stalled != null && "1*".equals(request.url().queryParameter("version"))) {
+				stalled.await(10, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+		requests.incrementAndGet();
+		Pattern name = glob(request.url().queryParameter("name"), false);
+		Pattern version = glob(request.url().queryParameter("version"), caseInsensitive);
+		List<String> matches = new ArrayList<>();
+		for (String path : paths) {
+			String[] parts = path.split("/");
+			if (name.matcher(parts[1]).matches() && version.matcher(parts[3]).matches()) {
+				matches.add("{\"path\": \"" + path + "\"}");
+			}
+		}
+		return offsetPage(request, matches, PAGE_SIZE);
+	}
+
+	private static Pattern glob(String glob, boolean caseInsensitive) {
+		if (glob == null) {
+			return Pattern.compile(".*");
+		}
+		StringBuilder regex = new StringBuilder();
+		for (char c : glob.toCharArray()) {
+			if (c == '*') {
+				regex.append(".*");
+			} else if (c == '?') {
+				regex.append('.');
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString(), caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 BioRAFT, Inc. (https://bioraft.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bioraft.rundeck.nexus;
+
+import static com.bioraft.rundeck.nexus.FakeNexus.client;
+import static com.bioraft.rundeck.nexus.FakeNexus.item;
+import static com.bioraft.rundeck.nexus.FakeNexus.names;
+import static com.bioraft.rundeck.nexus.FakeNexus.respond;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Tests for WebhookInvalidator using webhook payloads recorded from Nexus.
+ *
+ * @since 2026-10-18
+ */
+public class WebhookInvalidatorTest {
+
+	private static final String SECRET = "s3cr3t";
+
+	private static final String ENDPOINT = "https://webhook.example.com/service/rest/v1/search/assets";
+
+	private static final String COMPONENT_CREATED = "{\n"
+			+ "  \"timestamp\" : \"2026-10-18T14:02:11.374+0000\",\n"
+			+ "  \"nodeId\" : \"52905B51-085CCABB-CEBBEAAD-16795588-FC927D93\",\n"
+			+ "  \"initiator\" : \"ci/10.0.4.17\",\n"
+			+ "  \"repositoryName\" : \"docker-hosted\",\n"
+			+ "  \"action\" : \"CREATED\",\n"
+			+ "  \"component\" : {\n"
+			+ "    \"id\" : \"08909bf0c86cf6c9600aade89e1c5e25\",\n"
+			+ "    \"componentId\" : \"ZG9ja2VyLWhvc3RlZDowODkwOWJmMGM4NmNmNmM5NjAwYWFkZTg5ZTFjNWUyNQ\",\n"
+			+ "    \"format\" : \"docker\",\n"
+			+ "    \"name\" : \"COMP_NAME\",\n"
+			+ "    \"group\" : null,\n"
+			+ "    \"version\" : \"1.2.4-1\"\n"
+			+ "  }\n"
+			+ "}";
+
+	private static final String ASSET_CREATED = "{\n"
+			+ "  \"timestamp\" : \"2026-10-18T14:05:40.118+0000\",\n"
+			+ "  \"nodeId\" : \"52905B51-085CCABB-CEBBEAAD-16795588-FC927D93\",\n"
+			+ "  \"initiator\" : \"ci/10.0.4.17\",\n"
+			+ "  \"repositoryName\" : \"docker-hosted\",\n"
+			+ "  \"action\" : \"CREATED\",\n"
+			+ "  \"asset\" : {\n"
+			+ "    \"id\" : \"31c950c8eeeab78336308177ae9c441c\",\n"
+			+ "    \"assetId\" : \"ZG9ja2VyLWhvc3RlZDozMWM5NTBjOGVlZWFiNzgzMzYzMDgxNzdhZTljNDQxYw\",\n"
+			+ "    \"format\" : \"docker\",\n"
+			+ "    \"name\" : \"v2/COMP_NAME/manifests/sprint_11-14\"\n"
+			+ "  }\n"
+			+ "}";
+
+	private static final String DIGEST_CREATED = "{\n"
+			+ "  \"repositoryName\" : \"docker-hosted\",\n"
+			+ "  \"action\" : \"CREATED\",\n"
+			+ "  \"asset\" : {\n"
+			+ "    \"format\" : \"docker\",\n"
+			+ "    \"name\" : \"v2/COMP_NAME/manifests/sha256:4c7bd0b7b9a0c3d8a3f6e1c2d0b9e8f7a6b5c4d3e2f1a0b9c8d7e6f5a4b3c2d1\"\n"
+			+ "  }\n"
+			+ "}";
+
+	private static final String COMPONENT_DELETED = "{\n"
+			+ "  \"timestamp\" : \"2026-10-18T14:09:02.905+0000\",\n"
+			+ "  \"nodeId\" : \"52905B51-085CCABB-CEBBEAAD-16795588-FC927D93\",\n"
+			+ "  \"initiator\" : \"admin/10.0.4.2\",\n"
+			+ "  \"repositoryName\" : \"docker-hosted\",\n"
+			+ "  \"action\" : \"DELETED\",\n"
+			+ "  \"component\" : {\n"
+			+ "    \"id\" : \"2ab2b1f8c4e6d0a3b5c7d9e1f3a5b7c9\",\n"
+			+ "    \"componentId\" : \"ZG9ja2VyLWhvc3RlZDoyYWIyYjFmOGM0ZTZkMGEzYjVjN2Q5ZTFmM2E1YjdjOQ\",\n"
+			+ "    \"format\" : \"docker\",\n"
+			+ "    \"name\" : \"COMP_NAME\",\n"
+			+ "    \"group\" : null,\n"
+			+ "    \"version\" : \"1.2.3-4\"\n"
+			+ "  }\n"
+			+ "}";
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private Map<String, String> configuration;
+
+	private InMemoryCacheBackend cache;
+
+	private OptionProviderImpl provider;
+
+	private WebhookInvalidator subject;
+
+	@Before
+	public void setUp() {
+		WebhookInvalidator.clearRegistrations();
+		configuration = new HashMap<>();
+		configuration.put("endpointScheme", "https");
+		configuration.put("endpointHost", "webhook.example.com");
+		configuration.put("endpointPath", "/service/rest/v1/search/assets");
+		configuration.put("repository", "docker-hosted");
+		configuration.put("componentName", "COMP_*");
+		configuration.put("cacheTtl", "600");
+
+		OkHttpClient client = client(chain -> {
+			requests.incrementAndGet();
+			return respond(chain.request(), item("sprint_11-13") + "," + item("sprint_11-4") + "," + item("1.2.3-4"),
+					null);
+		});
+		cache = new InMemoryCacheBackend();
+		provider = new OptionProviderImpl(client, new BranchOrVersionCache(BranchOrVersionCache.DEFAULT_MAX_WEIGHT),
+				cache);
+		subject = new WebhookInvalidator(SECRET, ENDPOINT);
+
+		assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:sprint_11-13", "COMP_NAME:1.2.3-4"), lookup());
+		assertEquals(1, requests.get());
+	}
+
+	@After
+	public void tearDown() {
+		WebhookInvalidator.clearRegistrations();
+	}
+
+	@Test
+	public void createdComponentIsAddedWithoutCrawling() {
+		assertEquals(1, subject.handle(COMPONENT_CREATED, signature(COMPONENT_CREATED)));
+
+		assertEquals(Arrays.asList("COMP_NAME:1.2.4-1", "COMP_NAME:sprint_11-13", "COMP_NAME:1.2.3-4",
+				"COMP_NAME:1.2.4-1"), lookup());
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void createdManifestReplacesOlderBuild() {
+		assertEquals(1, subject.handle(ASSET_CREATED, signature(ASSET_CREATED)));
+
+		assertEquals(Arrays.asList("COMP_NAME:1.2.3-4", "COMP_NAME:sprint_11-14", "COMP_NAME:1.2.3-4"), lookup());
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void deletedComponentInvalidatesList() {
+		assertEquals(1, subject.handle(COMPONENT_DELETED, signature(COMPONENT_DELETED)));
+
+		lookup();
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void ignoresDigestsAndOtherSearches() {
+		assertEquals(0, subject.handle(DIGEST_CREATED, signature(DIGEST_CREATED)));
+
+		String otherRepository = COMPONENT_CREATED.replace("docker-hosted", "docker-proxy");
+		assertEquals(0, subject.handle(otherRepository, signature(otherRepository)));
+
+		String otherName = COMPONENT_CREATED.replace("COMP_NAME", "OTHER");
+		assertEquals(0, subject.handle(otherName, signature(otherName)));
+
+		assertEquals(3, lookup().size());
+	}
+
+	@Test
+	public void ignoresOtherEndpoints() {
+		WebhookInvalidator otherServer = new WebhookInvalidator(SECRET,
+				"https://other.example.com/service/rest/v1/search/assets");
+		assertEquals(0, otherServer.handle(COMPONENT_CREATED, signature(COMPONENT_CREATED)));
+
+		configuration.put("endpointHost", "other.example.com");
+		lookup();
+		assertEquals(2, requests.get());
+		assertEquals(1, subject.handle(COMPONENT_DELETED, signature(COMPONENT_DELETED)));
+		assertEquals(3, lookup().size());
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void respectsVersionFilter() {
+		configuration.put("componentVersion", "sprint_*");
+		lookup();
+		assertEquals(2, requests.get());
+
+		// Only the list for the unfiltered search can contain a release.
+		assertEquals(1, subject.handle(COMPONENT_CREATED, signature(COMPONENT_CREATED)));
+		assertEquals(2, subject.handle(ASSET_CREATED, signature(ASSET_CREATED)));
+	}
+
+	@Test
+	public void invalidatesListOrderedByRecency() {
+		// Keep this search apart from the one looked up in setUp.
+		configuration.put("repository", "docker-timed");
+		configuration.put("orderBy", "lastModified");
+		lookup();
+		assertEquals(2, requests.get());
+
+		String created = ASSET_CREATED.replace("docker-hosted", "docker-timed");
+		assertEquals(1, subject.handle(created, signature(created)));
+		lookup();
+		assertEquals(3, requests.get());
+	}
+
+	@Test
+	public void forgetsSearchesOnceTheirListsExpire() {
+		WebhookInvalidator.purgeExpired(System.currentTimeMillis() + 600001);
+		assertEquals(0, subject.handle(COMPONENT_CREATED, signature(COMPONENT_CREATED)));
+
+		// The next lookup, served from the cache, registers the search again.
+		lookup();
+		assertEquals(1, requests.get());
+		assertEquals(1, subject.handle(COMPONENT_CREATED, signature(COMPONENT_CREATED)));
+	}
+
+	@Test
+	public void boundsSearchesKnown() {
+		for (int i = 0; i <= WebhookInvalidator.MAX_REGISTRATIONS; i++) {
+			configuration.put("componentVersion", "1." + i + ".*");
+			WebhookInvalidator.register(new NexusSearch(configuration), cache);
+		}
+		assertEquals(WebhookInvalidator.MAX_REGISTRATIONS, WebhookInvalidator.registrations());
+	}
+
+	@Test
+	public void verifiesRawBytes() {
+		byte[] body = COMPONENT_CREATED.replace("ci/", "c\u00e9/").getBytes(StandardCharsets.UTF_8);
+		String signature = new String(subject.sign(body), StandardCharsets.US_ASCII);
+
+		assertEquals(1, subject.handle(body, signature));
+		try {
+			// Servlet containers decode bodies as ISO-8859-1 unless told otherwise.
+			subject.handle(new String(body, StandardCharsets.ISO_8859_1), signature);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid webhook signature", e.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsBadSignature() {
+		subject.handle(COMPONENT_CREATED, signature(COMPONENT_DELETED));
+	}
+
+	@Test
+	public void rejectsMissingSignatureWithoutChangingCache() {
+		try {
+			subject.handle(COMPONENT_DELETED, null);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertEquals(3, lookup().size());
+			assertEquals(1, requests.get());
+		}
+	}
+
+	@Test
+	public void matchesSearchPatterns() {
+		assertTrue(NexusSearch.globMatches("COMP_*", "COMP_NAME"));
+		assertTrue(NexusSearch.globMatches("*-?", "sprint_11-4"));
+		assertTrue(NexusSearch.globMatches("1.*.*", "1.2.3"));
+		assertFalse(NexusSearch.globMatches("*-?", "sprint_11-13"));
+		assertFalse(NexusSearch.globMatches("COMP", "COMP_NAME"));
+		assertTrue(NexusSearch.globMatches("comp_*", "COMP_NAME"));
+		assertTrue(NexusSearch.globMatches("SPRINT_1?-*", "sprint_11-4"));
+		assertFalse(NexusSearch.globMatches("sprint_2*", "SPRINT_11-4"));
+	}
+
+	private List<String> lookup() {
+		return names(provider.getOptionValues(configuration));
+	}
+
+	private String signature(String body) {
+		return new String(subject.sign(body.getBytes(StandardCharsets.UTF_8)), StandardCharsets.US_ASCII);
+	}
+}